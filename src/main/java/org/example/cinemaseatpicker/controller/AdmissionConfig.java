@@ -0,0 +1,29 @@
+package org.example.cinemaseatpicker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cinemaseatpicker.service.AdmissionControl;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Puts admission control in front of the showing endpoints that take the load of an on-sale spike.
+ * Batch orders, layouts and the waiting room itself are not gated.
+ */
+@Configuration
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    AdmissionConfig(AdmissionControl admissionControl, ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AdmissionInterceptor(admissionControl, objectMapper))
+                .addPathPatterns("/showings/*/order", "/showings/*/holds", "/showings/*/seats", "/showings/*/best");
+    }
+}
@@ -0,0 +1,69 @@
+package org.example.cinemaseatpicker.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.example.cinemaseatpicker.model.WaitingRoomTicket;
+import org.example.cinemaseatpicker.service.AdmissionControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Runs {@link AdmissionControl} before the showing endpoints it is registered for. Orders and holds,
+ * including {@code /best?hold=true}, go through the order gate and wait in the waiting room, seat map
+ * reads and searches through the read gate. Refused requests are answered with 429 and Retry-After
+ * without reaching the controller, an order's answer carries its {@link WaitingRoomTicket}.
+ */
+public class AdmissionInterceptor implements HandlerInterceptor {
+
+    public static final String ADMISSION_TOKEN = "Admission-Token";
+
+    private final AdmissionControl admissionControl;
+    private final ObjectMapper objectMapper;
+
+    public AdmissionInterceptor(AdmissionControl admissionControl, ObjectMapper objectMapper) {
+        this.admissionControl = admissionControl;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        if (!admissionControl.isEnabled() || CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        String showingId = showingId(request);
+
+        if (HttpMethod.POST.matches(request.getMethod()) || Boolean.parseBoolean(request.getParameter("hold"))) {
+            WaitingRoomTicket ticket = admissionControl.admitOrder(showingId, request.getHeader(ADMISSION_TOKEN));
+            if (ticket == null) {
+                return true;
+            }
+            response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(admissionControl.retryAfterSeconds(ticket)));
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            objectMapper.writeValue(response.getOutputStream(), ticket);
+            return false;
+        }
+
+        long retryAfter = admissionControl.admitRead(showingId);
+        if (retryAfter == 0) {
+            return true;
+        }
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String showingId(HttpServletRequest request) {
+        Map<String, String> variables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        return variables == null ? null : variables.get("showingId");
+    }
+}
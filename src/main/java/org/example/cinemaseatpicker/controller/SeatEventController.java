@@ -0,0 +1,29 @@
+package org.example.cinemaseatpicker.controller;
+
+import org.example.cinemaseatpicker.service.SeatEventPublisher;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@CrossOrigin(origins = "*")
+@RestController
+public class SeatEventController {
+
+    SeatEventPublisher seatEventPublisher;
+
+    SeatEventController(SeatEventPublisher seatEventPublisher) {
+        this.seatEventPublisher = seatEventPublisher;
+    }
+
+    /**
+     * Streams seat changes of a showing. {@code since} is the version the client's map was loaded at,
+     * on reconnect the browser sends the last event id instead.
+     */
+    @GetMapping(value = "/showings/{showingId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSeatChanges(@PathVariable String showingId,
+                                        @RequestParam(required = false) Long since,
+                                        @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since != null ? since : 0L;
+        return seatEventPublisher.subscribe(showingId, from);
+    }
+}
@@ -1,45 +1,214 @@
 package org.example.cinemaseatpicker.controller;
 
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.BatchOrderItem;
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BestSeatsResponse;
+import org.example.cinemaseatpicker.model.HoldResponse;
+import org.example.cinemaseatpicker.model.LayoutRequest;
 import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.model.SeatCategory;
+import org.example.cinemaseatpicker.model.SeatMapDelta;
+import org.example.cinemaseatpicker.model.ShowingRequest;
+import org.example.cinemaseatpicker.model.WaitingRoomTicket;
+import org.example.cinemaseatpicker.service.AdmissionControl;
+import org.example.cinemaseatpicker.service.BookingQueueFullException;
+import org.example.cinemaseatpicker.service.BookingWriters;
+import org.example.cinemaseatpicker.service.HoldService;
+import org.example.cinemaseatpicker.service.IdempotentOrders;
+import org.example.cinemaseatpicker.service.SeatMapCodec;
 import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.example.cinemaseatpicker.service.WaitingRoomFullException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = {"ETag", "Retry-After"})
 @RestController
 public class SeatPickerController {
 
+    private static final String BOOT_STAMP = Long.toString(System.currentTimeMillis(), 36);
+    private static final MediaType SEAT_MAP = MediaType.parseMediaType(SeatMapCodec.MEDIA_TYPE);
+
     SeatPickerService seatPickerService;
+    HoldService holdService;
+    IdempotentOrders idempotentOrders;
+    AdmissionControl admissionControl;
 
-    SeatPickerController(SeatPickerService seatPickerService){
+    SeatPickerController(SeatPickerService seatPickerService, HoldService holdService, IdempotentOrders idempotentOrders,
+                         AdmissionControl admissionControl){
         this.seatPickerService = seatPickerService;
+        this.holdService = holdService;
+        this.idempotentOrders = idempotentOrders;
+        this.admissionControl = admissionControl;
+    }
+
+    @PostMapping("/layouts")
+    public AuditoriumLayout registerLayout(@RequestBody LayoutRequest request) {
+        int[] seatsPerRow = request.getSeatsPerRow();
+        int totalRows = seatsPerRow == null ? 0 : seatsPerRow.length;
+        return seatPickerService.registerLayout(new AuditoriumLayout(request.getLayoutId(), seatsPerRow,
+                AuditoriumLayout.categoryMasks(totalRows, request.getCategories())));
+    }
+
+    @PostMapping("/showings")
+    public AuditoriumLayout createShowing(@RequestBody ShowingRequest request) {
+        return seatPickerService.createShowing(request.getShowingId(), request.getLayoutId(), request.getStrategy()).getLayout();
+    }
+
+    @GetMapping("/showings/{showingId}/layout")
+    public AuditoriumLayout getLayout(@PathVariable String showingId) {
+        return seatPickerService.getRegistry().getShowing(showingId).getLayout();
+    }
+
+    /**
+     * The seat map as a JSON list of seats, or as the compact bitmap encoding when the client
+     * explicitly accepts application/octet-stream
+     */
+    @GetMapping("/showings/{showingId}/seats")
+    public ResponseEntity<?> getAllSeats(@PathVariable String showingId,
+                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                         WebRequest request) {
+        boolean bitmap = acceptsBitmap(accept);
+        // The version is read before the seats, so the ETag never claims more than the body contains
+        String etag = etag(seatPickerService.getVersion(showingId), bitmap ? "b" : "j");
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).header(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (bitmap) {
+            return response.contentType(SEAT_MAP)
+                    .body(seatPickerService.getEncodedSeatMap(showingId));
+        }
+        return response.contentType(MediaType.APPLICATION_JSON).body(seatPickerService.getAllSeats(showingId));
+    }
+
+    @GetMapping(value = "/showings/{showingId}/seats", params = "since")
+    public ResponseEntity<SeatMapDelta> getSeatChanges(@PathVariable String showingId, @RequestParam long since) {
+        SeatMapDelta delta = seatPickerService.getSeatChanges(showingId, since);
+        return ResponseEntity.ok().eTag(etag(delta.getVersion(), "d")).body(delta);
+    }
+
+    /**
+     * Answered once the showing's writer has booked the order, see {@link BookingWriters}, with the booking id
+     * when the seats were booked. A retry with the same {@code Idempotency-Key} gets the first answer back,
+     * see {@link IdempotentOrders}.
+     */
+    @PostMapping("/showings/{showingId}/order")
+    public CompletableFuture<BatchOrderResult> orderSeats(@PathVariable String showingId, @RequestBody List<Seat> seats,
+                                                          @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        return idempotentOrders.book(idempotencyKey, showingId, seats);
+    }
+
+    @DeleteMapping("/showings/{showingId}/bookings/{bookingId}")
+    public boolean cancelBooking(@PathVariable String showingId, @PathVariable String bookingId) {
+        return seatPickerService.cancelBooking(showingId, bookingId);
+    }
+
+    /**
+     * Where the ticket from a 429 answer stands in the showing's waiting room, see {@link AdmissionControl}
+     */
+    @GetMapping("/showings/{showingId}/waiting-room")
+    public WaitingRoomTicket getWaitingRoomStatus(@PathVariable String showingId,
+                                                  @RequestHeader(AdmissionInterceptor.ADMISSION_TOKEN) String admissionToken) {
+        return admissionControl.status(showingId, admissionToken);
+    }
+
+    @GetMapping("/showings/{showingId}/best")
+    public BestSeatsResponse findBestSeats(@PathVariable String showingId,
+                                           @RequestParam int party,
+                                           @RequestParam(required = false) Integer row,
+                                           @RequestParam(defaultValue = "false") boolean hold,
+                                           @RequestParam(defaultValue = "false") boolean split,
+                                           @RequestParam(defaultValue = "false") boolean scored,
+                                           @RequestParam(name = "category", required = false) Set<SeatCategory> categories) {
+        if (hold && split) {
+            throw new IllegalArgumentException("A hold covers seats in one row, split blocks can only be ordered");
+        }
+        // Categories are only understood by the scored search
+        if (scored || (categories != null && !categories.isEmpty())) {
+            if (split) {
+                throw new IllegalArgumentException("Scored search places a group in one row");
+            }
+            Supplier<List<Seat>> search = () -> seatPickerService.findBestScoredSeats(showingId, party, categories);
+            return hold ? holdService.holdBest(showingId, search) : new BestSeatsResponse(search.get(), null);
+        }
+        if (hold) {
+            return holdService.holdBest(showingId, party, row);
+        }
+        return new BestSeatsResponse(seatPickerService.findBestSeats(showingId, party, row, split), null);
     }
 
-    @GetMapping("/seats")
-    public List<Seat> getAllSeats() {
-        return seatPickerService.getAllSeats();
+    @PostMapping("/showings/{showingId}/holds")
+    public HoldResponse holdSeats(@PathVariable String showingId, @RequestBody List<Seat> seats) {
+        return holdService.hold(showingId, seats);
     }
 
-    @PostMapping("/order")
-    public boolean orderSeats(@RequestBody List<Seat> seats) {
-        boolean isValid = seatPickerService.checkSeats(seats);
+    @PostMapping("/holds/{holdId}/confirm")
+    public boolean confirmHold(@PathVariable String holdId) {
+        return holdService.confirm(holdId);
+    }
 
-        if (isValid) {
-            seatPickerService.orderSeats(seats);
+    @DeleteMapping("/holds/{holdId}")
+    public boolean releaseHold(@PathVariable String holdId) {
+        return holdService.release(holdId);
+    }
+
+    @PostMapping("/orders/batch")
+    public List<BatchOrderResult> orderBatch(@RequestBody List<BatchOrderItem> orders) {
+        return seatPickerService.bookBatch(orders);
+    }
+
+    @PostMapping("/showings/{showingId}/setup-test")
+    public void setupTestScenario(@PathVariable String showingId) {
+        seatPickerService.setupTestScenario(showingId);
+    }
+
+    @GetMapping("/showings/{showingId}/reset-seats")
+    public List<Seat> resetSeats(@PathVariable String showingId) {
+        return seatPickerService.resetSeats(showingId);
+    }
+
+    private static String etag(long version, String representation) {
+        // Versions start over when the server restarts, the boot stamp keeps old ETags from matching
+        return "\"" + BOOT_STAMP + "-" + representation + "-" + version + "\"";
+    }
+
+    private static boolean acceptsBitmap(String accept) {
+        if (accept == null) {
+            return false;
         }
+        for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+            if (mediaType.equalsTypeAndSubtype(SEAT_MAP)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        return isValid;
+    @ExceptionHandler(IllegalArgumentException.class)
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public String handleBadRequest(IllegalArgumentException e) {
+        return e.getMessage();
     }
 
-    @PostMapping("/setup-test")
-    public void setupTestScenario() {
-        seatPickerService.setupTestScenario();
+    @ExceptionHandler(BookingQueueFullException.class)
+    public ResponseEntity<String> handleQueueFull(BookingQueueFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(e.getMessage());
     }
 
-    @GetMapping("/reset-seats")
-    public List<Seat> resetSeats() {
-        return seatPickerService.resetSeats();
+    @ExceptionHandler(WaitingRoomFullException.class)
+    public ResponseEntity<String> handleWaitingRoomFull(WaitingRoomFullException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").body(e.getMessage());
     }
 
 }
@@ -0,0 +1,206 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.example.cinemaseatpicker.service.RowMasks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Geometry of a cinema hall and the categories of its seats, one mask per category and row.
+ * Layouts are immutable and shared by every showing in the hall.
+ */
+@Getter
+public class AuditoriumLayout {
+
+    private final String id;
+    private final int[] seatsPerRow;
+    private final int capacity;
+    // Precomputed once per layout, every fragmentation check masks with it
+    @Getter(AccessLevel.NONE)
+    private final long[] fullMasks;
+    // By category ordinal, then row
+    @Getter(AccessLevel.NONE)
+    private final long[][] categoryMasks;
+
+    public AuditoriumLayout(String id, int... seatsPerRow) {
+        this(id, seatsPerRow, Map.of());
+    }
+
+    /**
+     * @param categories seat mask per row for each category, rows missing at the end have no seats of it
+     */
+    public AuditoriumLayout(String id, int[] seatsPerRow, Map<SeatCategory, long[]> categories) {
+        if (id == null || id.isBlank()) {
+            throw new IllegalArgumentException("Layout id is required");
+        }
+        if (seatsPerRow == null || seatsPerRow.length == 0) {
+            throw new IllegalArgumentException("Layout " + id + " needs at least one row");
+        }
+
+        int total = 0;
+        for (int seats : seatsPerRow) {
+            if (seats < 1 || seats > RowMasks.MAX_SEATS_PER_ROW) {
+                throw new IllegalArgumentException("Seats per row must be between 1 and " + RowMasks.MAX_SEATS_PER_ROW);
+            }
+            total += seats;
+        }
+
+        this.id = id;
+        this.seatsPerRow = seatsPerRow.clone();
+        this.capacity = total;
+        this.fullMasks = new long[seatsPerRow.length];
+        for (int i = 0; i < seatsPerRow.length; i++) {
+            fullMasks[i] = RowMasks.fullMask(seatsPerRow[i]);
+        }
+
+        this.categoryMasks = new long[SeatCategory.values().length][seatsPerRow.length];
+        categories.forEach((category, masks) -> {
+            if (masks.length > seatsPerRow.length) {
+                throw new IllegalArgumentException(category + " seats are outside layout " + id);
+            }
+            for (int i = 0; i < masks.length; i++) {
+                if ((masks[i] & ~fullMasks[i]) != 0) {
+                    throw new IllegalArgumentException(category + " seats are outside row " + (i + 1));
+                }
+                categoryMasks[category.ordinal()][i] = masks[i];
+            }
+        });
+    }
+
+    /**
+     * Turns category -> row -> seat numbers into the masks the constructor takes
+     */
+    public static Map<SeatCategory, long[]> categoryMasks(int totalRows, Map<SeatCategory, Map<Integer, List<Integer>>> seats) {
+        Map<SeatCategory, long[]> masks = new EnumMap<>(SeatCategory.class);
+        if (seats == null) {
+            return masks;
+        }
+        seats.forEach((category, rows) -> {
+            long[] categoryMasks = masks.computeIfAbsent(category, c -> new long[totalRows]);
+            rows.forEach((row, seatNumbers) -> {
+                if (row < 1 || row > totalRows) {
+                    throw new IllegalArgumentException("Row " + row + " does not exist");
+                }
+                for (int seat : seatNumbers) {
+                    if (seat < 1 || seat > RowMasks.MAX_SEATS_PER_ROW) {
+                        throw new IllegalArgumentException("Seat " + seat + " does not exist in row " + row);
+                    }
+                    categoryMasks[row - 1] |= RowMasks.bit(seat);
+                }
+            });
+        });
+        return masks;
+    }
+
+    /**
+     * Layout with the same number of seats in every row
+     */
+    public static AuditoriumLayout uniform(String id, int totalRows, int seatsPerRow) {
+        int[] rows = new int[totalRows];
+        Arrays.fill(rows, seatsPerRow);
+        return new AuditoriumLayout(id, rows);
+    }
+
+    public int[] getSeatsPerRow() {
+        return seatsPerRow.clone();
+    }
+
+    public int getTotalRows() {
+        return seatsPerRow.length;
+    }
+
+    public int getMaxSeatsInRow() {
+        int max = 0;
+        for (int seats : seatsPerRow) {
+            max = Math.max(max, seats);
+        }
+        return max;
+    }
+
+    public int getSeatsInRow(int row) {
+        if (row < 1 || row > seatsPerRow.length) {
+            throw new IllegalArgumentException("Row " + row + " does not exist");
+        }
+        return seatsPerRow[row - 1];
+    }
+
+    /**
+     * Mask with one bit per seat in the row
+     */
+    public long fullMask(int row) {
+        if (row < 1 || row > fullMasks.length) {
+            throw new IllegalArgumentException("Row " + row + " does not exist");
+        }
+        return fullMasks[row - 1];
+    }
+
+    /**
+     * Mask of the seats in the row that have the category
+     */
+    public long categoryMask(SeatCategory category, int row) {
+        fullMask(row);
+        return categoryMasks[category.ordinal()][row - 1];
+    }
+
+    /**
+     * Seats a buyer asking for {@code categories} may be offered: seats with every requested category,
+     * or with no requested categories every seat that isn't {@link SeatCategory#isReserved() reserved}
+     */
+    public long eligibleMask(int row, Set<SeatCategory> categories) {
+        long eligible = fullMask(row);
+        if (categories.isEmpty()) {
+            for (SeatCategory category : SeatCategory.values()) {
+                if (category.isReserved()) {
+                    eligible &= ~categoryMasks[category.ordinal()][row - 1];
+                }
+            }
+            return eligible;
+        }
+        for (SeatCategory category : categories) {
+            eligible &= categoryMasks[category.ordinal()][row - 1];
+        }
+        return eligible;
+    }
+
+    /**
+     * Category -> row -> seat numbers, for the categories the layout uses
+     */
+    public Map<SeatCategory, Map<Integer, List<Integer>>> getCategories() {
+        Map<SeatCategory, Map<Integer, List<Integer>>> categories = new EnumMap<>(SeatCategory.class);
+        for (SeatCategory category : SeatCategory.values()) {
+            Map<Integer, List<Integer>> rows = new TreeMap<>();
+            long[] masks = categoryMasks[category.ordinal()];
+            for (int i = 0; i < masks.length; i++) {
+                List<Integer> seats = new ArrayList<>();
+                for (long mask = masks[i]; mask != 0; mask &= mask - 1) {
+                    seats.add(Long.numberOfTrailingZeros(mask) + 1);
+                }
+                if (!seats.isEmpty()) {
+                    rows.put(i + 1, seats);
+                }
+            }
+            if (!rows.isEmpty()) {
+                categories.put(category, rows);
+            }
+        }
+        return categories;
+    }
+
+    public boolean hasCategories() {
+        for (long[] masks : categoryMasks) {
+            for (long mask : masks) {
+                if (mask != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
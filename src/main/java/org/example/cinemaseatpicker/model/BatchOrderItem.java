@@ -0,0 +1,17 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BatchOrderItem {
+    private String showingId;
+    private List<Seat> seats;
+}
@@ -0,0 +1,17 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class BatchOrderResult {
+    private String showingId;
+    private BookingStatus status;
+    // Set when the seats were booked, cancels the order with DELETE /showings/{showingId}/bookings/{bookingId}
+    private String bookingId;
+}
@@ -0,0 +1,17 @@
+package org.example.cinemaseatpicker.model;
+
+/**
+ * Outcome of an atomic check-and-book
+ */
+public enum BookingStatus {
+    /** The seats were free and are now taken */
+    BOOKED,
+    /** The seats were free and are now held until the hold is confirmed, released or expires */
+    HELD,
+    /** The selection leaves an isolated seat and a better block exists elsewhere */
+    REJECTED,
+    /** At least one of the seats was already taken */
+    CONFLICT,
+    /** The selection could not be read (unknown showing or seat, empty or spanning rows) */
+    INVALID
+}
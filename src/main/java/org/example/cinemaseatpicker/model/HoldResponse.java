@@ -0,0 +1,18 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class HoldResponse {
+    private String holdId;
+    private BookingStatus status;
+    private Instant expiresAt;
+}
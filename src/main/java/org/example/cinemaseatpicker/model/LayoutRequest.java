@@ -0,0 +1,20 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.Map;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class LayoutRequest {
+    private String layoutId;
+    private int[] seatsPerRow;
+    // Category -> row -> seat numbers, may be left out
+    private Map<SeatCategory, Map<Integer, List<Integer>>> categories;
+}
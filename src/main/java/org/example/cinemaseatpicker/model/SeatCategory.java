@@ -0,0 +1,24 @@
+package org.example.cinemaseatpicker.model;
+
+/**
+ * Attributes a layout can give its seats. A seat can have several, a seat with none is a standard seat.
+ */
+public enum SeatCategory {
+    PREMIUM(false),
+    WHEELCHAIR(true),
+    COMPANION(true),
+    AISLE(false);
+
+    private final boolean reserved;
+
+    SeatCategory(boolean reserved) {
+        this.reserved = reserved;
+    }
+
+    /**
+     * Reserved seats are only suggested to buyers who ask for the category
+     */
+    public boolean isReserved() {
+        return reserved;
+    }
+}
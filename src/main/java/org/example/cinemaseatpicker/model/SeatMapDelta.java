@@ -0,0 +1,21 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Seats that changed since a version. {@code full} is true when the whole map was sent instead.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class SeatMapDelta {
+    private long version;
+    private boolean full;
+    private List<Seat> seats;
+}
@@ -0,0 +1,17 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class ShowingRequest {
+    private String showingId;
+    private String layoutId;
+    // Placement strategy name, the default strategy when empty
+    private String strategy;
+}
@@ -0,0 +1,23 @@
+package org.example.cinemaseatpicker.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.Instant;
+
+/**
+ * A place in a showing's waiting room. The ticket is sent back as the {@code Admission-Token} header
+ * and lets its holder in from {@code admittedAt} until {@code expiresAt}.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class WaitingRoomTicket {
+    private String ticket;
+    private long position;
+    private Instant admittedAt;
+    private Instant expiresAt;
+}
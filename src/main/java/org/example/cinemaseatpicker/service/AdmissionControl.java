@@ -0,0 +1,315 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.WaitingRoomTicket;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Per-showing rate limits with a waiting room for orders, so one showing going on sale cannot take every
+ * request thread from the others.
+ * <p>
+ * Every showing has two token buckets, one for orders and holds and one for seat map reads, kept as GCRA
+ * gates: a single theoretical arrival time per bucket, moved forward by one interval per admitted request
+ * with a CAS, so a check is a clock read and one compare-and-set whatever the load. A read over the limit is
+ * refused with the time until the bucket has room. An order over the limit instead reserves the next free
+ * slot of its bucket and gets a signed {@link WaitingRoomTicket} for it. Slots are handed out in arrival
+ * order, so the ticket's position is how many orders are admitted before it. From the slot's time until the
+ * ticket expires it is an admission token for that showing, and the first order carrying it skips the bucket,
+ * which already counted it. Tickets are HMAC-signed and carry their own times, so the waiting room keeps no
+ * state per waiting client. Slots of one showing never share a time, so each showing only remembers the
+ * slot times of the tickets already used, until they expire, and a used ticket queues again like an order
+ * without one. When the queue is {@code max-waiting} orders deep, new orders are refused with
+ * {@link WaitingRoomFullException}.
+ */
+@Service
+public class AdmissionControl {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final String HMAC = "HmacSHA256";
+
+    private final ShowingRegistry registry;
+    private final boolean enabled;
+    private final long orderInterval;
+    private final long orderTolerance;
+    private final long readInterval;
+    private final long readTolerance;
+    private final long maxWaitNanos;
+    private final long ticketTtlNanos;
+    private final int maxUsedTickets;
+    private final SecretKeySpec key;
+    private final LongSupplier clock;
+    private final Map<String, Gates> gates = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdmissionControl(SeatPickerService seatPickerService,
+                            @Value("${cinema.admission.enabled:false}") boolean enabled,
+                            @Value("${cinema.admission.orders-per-second:50}") double ordersPerSecond,
+                            @Value("${cinema.admission.order-burst:20}") int orderBurst,
+                            @Value("${cinema.admission.reads-per-second:200}") double readsPerSecond,
+                            @Value("${cinema.admission.read-burst:100}") int readBurst,
+                            @Value("${cinema.admission.max-waiting:10000}") int maxWaiting,
+                            @Value("${cinema.admission.ticket-ttl:PT2M}") Duration ticketTtl,
+                            @Value("${cinema.admission.secret:}") String secret) {
+        this(seatPickerService.getRegistry(), enabled, ordersPerSecond, orderBurst, readsPerSecond, readBurst,
+                maxWaiting, ticketTtl, secret, AdmissionControl::epochNanos);
+    }
+
+    public AdmissionControl(ShowingRegistry registry, boolean enabled, double ordersPerSecond, int orderBurst,
+                            double readsPerSecond, int readBurst, int maxWaiting, Duration ticketTtl, String secret,
+                            LongSupplier clock) {
+        if (ordersPerSecond <= 0 || readsPerSecond <= 0 || orderBurst < 1 || readBurst < 1 || maxWaiting < 0) {
+            throw new IllegalArgumentException("Admission rates must be positive and bursts at least 1");
+        }
+        this.registry = registry;
+        this.enabled = enabled;
+        this.orderInterval = interval(ordersPerSecond);
+        this.orderTolerance = (orderBurst - 1) * orderInterval;
+        this.readInterval = interval(readsPerSecond);
+        this.readTolerance = (readBurst - 1) * readInterval;
+        this.maxWaitNanos = maxWaiting * orderInterval;
+        this.ticketTtlNanos = ticketTtl.toNanos();
+        // Every ticket that can still be live: the slots of one ticket lifetime plus the queue ahead of them
+        this.maxUsedTickets = (int) Math.min(Integer.MAX_VALUE, ticketTtlNanos / orderInterval + 1 + maxWaiting);
+        this.key = new SecretKeySpec(secret == null || secret.isBlank() ? randomSecret()
+                : secret.getBytes(StandardCharsets.UTF_8), HMAC);
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Admits an order or hold, returning null, or returns the ticket to wait with. A valid admission
+     * token for the showing lets one order in from its slot until it expires, and before its slot gets its ticket
+     * back with the current position.
+     *
+     * @throws WaitingRoomFullException if the showing's waiting room is full
+     */
+    public WaitingRoomTicket admitOrder(String showingId, String admissionToken) {
+        Gates showing = gates(showingId);
+        if (showing == null) {
+            return null;
+        }
+        long now = clock.getAsLong();
+        Ticket ticket = admissionToken == null ? null : verify(admissionToken);
+        if (ticket != null && ticket.showingId.equals(showingId) && now < ticket.expiresAt) {
+            if (now < ticket.admitAt) {
+                return waitingRoomTicket(admissionToken, ticket, now);
+            }
+            if (showing.usedTickets.putIfAbsent(ticket.admitAt, Boolean.TRUE) == null) {
+                return null;
+            }
+        }
+
+        long admitAt = showing.orders.reserve(now, orderInterval, orderTolerance, maxWaitNanos);
+        if (admitAt < 0) {
+            throw new WaitingRoomFullException("The waiting room for showing " + showingId + " is full");
+        }
+        if (admitAt == now) {
+            return null;
+        }
+        Ticket issued = new Ticket(showingId, admitAt, admitAt + ticketTtlNanos);
+        return waitingRoomTicket(sign(issued), issued, now);
+    }
+
+    /**
+     * Admits a seat map read, returning 0, or returns the seconds until one would be admitted
+     */
+    public long admitRead(String showingId) {
+        Gates showing = gates(showingId);
+        if (showing == null) {
+            return 0;
+        }
+        long now = clock.getAsLong();
+        long admitAt = showing.reads.reserve(now, readInterval, readTolerance, 0);
+        return admitAt < 0 ? secondsUntil(showing.reads.nextConforming(readTolerance), now) : 0;
+    }
+
+    /**
+     * Where an admission token stands in the showing's waiting room, position 0 once it is admitted
+     */
+    public WaitingRoomTicket status(String showingId, String admissionToken) {
+        Ticket ticket = admissionToken == null ? null : verify(admissionToken);
+        if (ticket == null || !ticket.showingId.equals(showingId)) {
+            throw new IllegalArgumentException("Admission token is not valid for showing " + showingId);
+        }
+        long now = clock.getAsLong();
+        if (now >= ticket.expiresAt) {
+            throw new IllegalArgumentException("Admission token has expired");
+        }
+        return waitingRoomTicket(admissionToken, ticket, now);
+    }
+
+    /**
+     * Seconds a client should wait before using the ticket, at least 1 while it is still queued
+     */
+    public long retryAfterSeconds(WaitingRoomTicket ticket) {
+        long now = clock.getAsLong();
+        return secondsUntil(epochNanos(ticket.getAdmittedAt()), now);
+    }
+
+    /**
+     * The showing's gates, or null for showings that do not exist so they fall through to a 404
+     */
+    private Gates gates(String showingId) {
+        if (!enabled || showingId == null) {
+            return null;
+        }
+        Gates showing = gates.get(showingId);
+        if (showing != null) {
+            return showing;
+        }
+        try {
+            registry.getShowing(showingId);
+        } catch (ShowingNotFoundException e) {
+            return null;
+        }
+        return gates.computeIfAbsent(showingId, id -> new Gates(
+                new ExpiringLruCache<>(maxUsedTickets, Duration.ofNanos(ticketTtlNanos), clock)));
+    }
+
+    private WaitingRoomTicket waitingRoomTicket(String token, Ticket ticket, long now) {
+        long position = Math.max(0, (ticket.admitAt - now + orderInterval - 1) / orderInterval);
+        return new WaitingRoomTicket(token, position, instant(ticket.admitAt), instant(ticket.expiresAt));
+    }
+
+    private String sign(Ticket ticket) {
+        String payload = base64(ticket.showingId + "|" + ticket.admitAt + "|" + ticket.expiresAt);
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(mac(payload));
+    }
+
+    /**
+     * The ticket inside a token, or null if the token is malformed or its signature does not match
+     */
+    private Ticket verify(String token) {
+        int dot = token.lastIndexOf('.');
+        if (dot < 0) {
+            return null;
+        }
+        String payload = token.substring(0, dot);
+        try {
+            byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, mac(payload))) {
+                return null;
+            }
+            String fields = new String(Base64.getUrlDecoder().decode(payload), StandardCharsets.UTF_8);
+            // The showing id may contain the separator itself, so the times are read from the end
+            int expiresSeparator = fields.lastIndexOf('|');
+            int admitSeparator = fields.lastIndexOf('|', expiresSeparator - 1);
+            return new Ticket(fields.substring(0, admitSeparator),
+                    Long.parseLong(fields.substring(admitSeparator + 1, expiresSeparator)),
+                    Long.parseLong(fields.substring(expiresSeparator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private byte[] mac(String payload) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    private static String base64(String text) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] randomSecret() {
+        // Tickets then only hold while this instance runs, set a secret to share them across restarts
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+
+    private static long interval(double perSecond) {
+        return Math.max(1, Math.round(NANOS_PER_SECOND / perSecond));
+    }
+
+    private static long secondsUntil(long time, long now) {
+        return Math.max(1, (time - now + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND);
+    }
+
+    private static long epochNanos() {
+        return epochNanos(Instant.now());
+    }
+
+    private static long epochNanos(Instant instant) {
+        return instant.getEpochSecond() * NANOS_PER_SECOND + instant.getNano();
+    }
+
+    private static Instant instant(long epochNanos) {
+        return Instant.ofEpochSecond(0, epochNanos);
+    }
+
+    private static final class Gates {
+        private final Gate orders = new Gate();
+        private final Gate reads = new Gate();
+        // Slot times of the tickets that have let an order in
+        private final ExpiringLruCache<Long, Boolean> usedTickets;
+
+        Gates(ExpiringLruCache<Long, Boolean> usedTickets) {
+            this.usedTickets = usedTickets;
+        }
+    }
+
+    /**
+     * A token bucket as a GCRA theoretical arrival time: a request at {@code now} conforms while
+     * {@code now >= tat - tolerance}, and every admitted or reserved request moves {@code tat} one interval on
+     */
+    private static final class Gate {
+        private final AtomicLong tat = new AtomicLong(Long.MIN_VALUE / 2);
+
+        /**
+         * Takes the next slot no more than {@code maxWait} away and returns its time, {@code now} if the
+         * request conforms, or -1 if the next slot is further away
+         */
+        long reserve(long now, long interval, long tolerance, long maxWait) {
+            while (true) {
+                long current = tat.get();
+                long admitAt = Math.max(current - tolerance, now);
+                if (admitAt - now > maxWait) {
+                    return -1;
+                }
+                if (tat.compareAndSet(current, Math.max(current, now) + interval)) {
+                    return admitAt;
+                }
+            }
+        }
+
+        long nextConforming(long tolerance) {
+            return tat.get() - tolerance;
+        }
+    }
+
+    private static final class Ticket {
+        private final String showingId;
+        private final long admitAt;
+        private final long expiresAt;
+
+        Ticket(String showingId, long admitAt, long expiresAt) {
+            this.showingId = showingId;
+            this.admitAt = admitAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The default rule: never leave a single free seat next to a group while a better block exists.
+ * <p>
+ * A selection that leaves a lone seat is only allowed when no block of exactly the group size, and none
+ * leaving two or more seats, exists anywhere in the showing. Suggestions search outwards from the
+ * preferred row and take the block closest to the centre of the row.
+ */
+public class AntiFragmentationPlacement implements PlacementStrategy {
+
+    public static final String NAME = "anti-fragmentation";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public boolean allows(long taken, long selection, long fullMask, long freeRunLengths) {
+        return !RowMasks.createsFragmentation(taken, selection, fullMask)
+                || !hasBetterAlternative(freeRunLengths, Long.bitCount(selection));
+    }
+
+    /**
+     * Blocks that would leave a single seat are only used when no other block exists anywhere,
+     * which is exactly when {@link #allows} accepts them.
+     */
+    @Override
+    public Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random) {
+        int totalRows = rows.getTotalRows();
+        int fallbackRow = -1;
+        long fallbackStarts = 0L;
+
+        // preferredRow, preferredRow + 1, preferredRow - 1, preferredRow + 2, ...
+        for (int step = 0; step < 2 * totalRows; step++) {
+            int row = preferredRow + ((step & 1) == 0 ? step / 2 : -(step + 1) / 2);
+            if (row < 1 || row > totalRows) {
+                continue;
+            }
+
+            long free = ~rows.takenMask(row) & rows.fullMask(row);
+            int centreStart = Math.max(0, (rows.getSeatsInRow(row) - groupSize) / 2);
+
+            int start = RowMasks.closestStart(RowMasks.nonFragmentingStarts(free, groupSize), centreStart);
+            if (start >= 0) {
+                return new Placement(row, RowMasks.range(start + 1, start + groupSize));
+            }
+
+            long fitting = RowMasks.fittingStarts(free, groupSize);
+            if (fallbackRow < 0 && fitting != 0) {
+                fallbackRow = row;
+                fallbackStarts = fitting;
+            }
+        }
+
+        if (fallbackRow < 0) {
+            return null;
+        }
+        int centreStart = Math.max(0, (rows.getSeatsInRow(fallbackRow) - groupSize) / 2);
+        int start = RowMasks.closestStart(fallbackStarts, centreStart);
+        return new Placement(fallbackRow, RowMasks.range(start + 1, start + groupSize));
+    }
+
+    /**
+     * A block of exactly requestedCount, or one leaving at least 2 seats, is a better alternative.
+     * Anything else (only requestedCount+1 or smaller) means there are no better alternatives.
+     */
+    public static boolean hasBetterAlternative(long runLengths, int requestedCount) {
+        if (requestedCount < 1 || requestedCount > RowMasks.MAX_SEATS_PER_ROW) {
+            return false;
+        }
+        boolean exactFit = (runLengths & RowMasks.bit(requestedCount)) != 0;
+        boolean leavesTwoOrMore = requestedCount + 1 < Long.SIZE && (runLengths >>> (requestedCount + 1)) != 0;
+        return exactFit || leavesTwoOrMore;
+    }
+}
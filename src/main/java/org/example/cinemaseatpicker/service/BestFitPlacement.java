@@ -0,0 +1,46 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The smallest free block the group fits in, left-aligned, so big blocks are kept for big groups.
+ * Ties go to the first row.
+ */
+public class BestFitPlacement implements PlacementStrategy {
+
+    public static final String NAME = "best-fit";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random) {
+        int bestRow = -1;
+        int bestStart = -1;
+        int bestLength = Integer.MAX_VALUE;
+
+        for (int row = 1; row <= rows.getTotalRows(); row++) {
+            long free = ~rows.takenMask(row) & rows.fullMask(row);
+            while (free != 0) {
+                int start = Long.numberOfTrailingZeros(free);
+                int length = Long.numberOfTrailingZeros(~(free >>> start));
+                if (length >= groupSize && length < bestLength) {
+                    bestRow = row;
+                    bestStart = start;
+                    bestLength = length;
+                    if (length == groupSize) {
+                        return placement(bestRow, bestStart, groupSize);
+                    }
+                }
+                free &= ~RowMasks.range(start + 1, start + length);
+            }
+        }
+        return bestRow < 0 ? null : placement(bestRow, bestStart, groupSize);
+    }
+
+    private static Placement placement(int row, int start, int groupSize) {
+        return new Placement(row, RowMasks.range(start + 1, start + groupSize));
+    }
+}
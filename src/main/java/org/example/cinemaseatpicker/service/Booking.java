@@ -0,0 +1,43 @@
+package org.example.cinemaseatpicker.service;
+
+import lombok.Getter;
+
+/**
+ * Seats sold in one order, kept by their showing so the order can be cancelled by id.
+ * The seats are a mask per row over one or more adjacent rows, like a {@link SeatSelection}.
+ */
+@Getter
+public class Booking {
+
+    private final String id;
+    private final int firstRow;
+    private final long[] seatMasks;
+    private final int epoch;
+
+    Booking(String id, int firstRow, long[] seatMasks, int epoch) {
+        this.id = id;
+        this.firstRow = firstRow;
+        this.seatMasks = seatMasks;
+        this.epoch = epoch;
+    }
+
+    public int getRowCount() {
+        return seatMasks.length;
+    }
+
+    public long mask(int row) {
+        return seatMasks[row - firstRow];
+    }
+
+    /**
+     * The booking with the rows of another part of the same order added, for orders journaled row by row
+     */
+    Booking merge(int row, long seatMask) {
+        int first = Math.min(firstRow, row);
+        int last = Math.max(firstRow + seatMasks.length - 1, row);
+        long[] merged = new long[last - first + 1];
+        System.arraycopy(seatMasks, 0, merged, firstRow - first, seatMasks.length);
+        merged[row - first] |= seatMask;
+        return new Booking(id, first, merged, epoch);
+    }
+}
@@ -0,0 +1,553 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.SeatCategory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of sold seats, replayed on startup to rebuild occupancy.
+ * <p>
+ * Every record is {@code length, crc32, type, sequence, payload}. Seat records carry the showing, the row
+ * and the seat mask, and replaying them in order gives the sold seats back. Cancelled bookings are journaled
+ * with the seats they free, so the seats are sold again after them in the journal too. Holds are never journaled,
+ * so a crash simply returns held seats to sale. A record that is cut short or fails its checksum ends
+ * the replay and is truncated away, so a crash in the middle of a write only loses that write.
+ * <p>
+ * Records go to segment files named after their first sequence. {@link #rotate()} starts a new segment,
+ * so once a snapshot covers everything up to the rotation the older segments can be deleted.
+ * <p>
+ * Appending only copies the record into a buffer. {@link #commit(long)} makes it durable with group
+ * commit: the first caller writes and forces everything buffered so far, callers that arrive while
+ * it is forcing wait for it and are usually covered by that same force or the next one. So /order waits
+ * for an fsync, but concurrent orders share it instead of queuing one fsync each.
+ */
+public class BookingJournal implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingJournal.class);
+
+    private static final byte LAYOUT = 1;
+    private static final byte SHOWING = 2;
+    private static final byte TAKE = 3;
+    private static final byte RESET = 4;
+    private static final byte RELEASE = 5;
+
+    // length + crc
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 16;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private static final BookingJournal DISABLED = new BookingJournal(null, null, false, 0L);
+
+    private final Path dir;
+    private final boolean fsync;
+    private final Object flushLock = new Object();
+
+    // Guarded by this
+    private ByteBuffer pending = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private long nextSequence;
+    private IOException failure;
+
+    // Guarded by flushLock
+    private FileChannel segment;
+    private long durableSequence;
+
+    private BookingJournal(Path dir, FileChannel segment, boolean fsync, long lastSequence) {
+        this.dir = dir;
+        this.segment = segment;
+        this.fsync = fsync;
+        this.nextSequence = lastSequence + 1;
+        this.durableSequence = lastSequence;
+    }
+
+    /**
+     * Journal that records nothing, for when durability is switched off
+     */
+    public static BookingJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Opens the journal in the directory, replays every intact record after {@code afterSequence} into the
+     * handler and positions it for appending. Segments that only hold older records are deleted.
+     */
+    public static BookingJournal open(Path dir, boolean fsync, long afterSequence, Handler handler) throws IOException {
+        Files.createDirectories(dir);
+        long started = System.nanoTime();
+        List<Path> segments = listSegments(dir);
+        long lastSequence = afterSequence;
+        int count = 0;
+
+        FileChannel current = null;
+        try {
+            for (int i = 0; i < segments.size(); i++) {
+                Path path = segments.get(i);
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                ByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                while (true) {
+                    long sequence = replayRecord(records, afterSequence, handler);
+                    if (sequence < 0) {
+                        break;
+                    }
+                    lastSequence = Math.max(lastSequence, sequence);
+                    count++;
+                }
+
+                boolean torn = records.position() < channel.size();
+                if (torn) {
+                    log.warn("Truncating {} bytes of torn journal tail in {}", channel.size() - records.position(), path);
+                    channel.truncate(records.position());
+                }
+                if (torn || i == segments.size() - 1) {
+                    // Nothing after a torn record can be trusted, later segments would replay out of order
+                    for (Path later : segments.subList(i + 1, segments.size())) {
+                        log.warn("Deleting journal segment {} after a torn record", later);
+                        Files.delete(later);
+                    }
+                    channel.position(records.position());
+                    current = channel;
+                    break;
+                }
+                channel.close();
+            }
+
+            if (current == null) {
+                current = openSegment(dir, lastSequence + 1);
+            }
+            log.info("Replayed {} journal records from {} in {} ms", count, dir, (System.nanoTime() - started) / 1_000_000);
+            BookingJournal journal = new BookingJournal(dir, current, fsync, lastSequence);
+            journal.deleteSegmentsThrough(afterSequence);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            if (current != null) {
+                current.close();
+            }
+            throw e;
+        }
+    }
+
+    public boolean isEnabled() {
+        return dir != null;
+    }
+
+    /**
+     * Records a layout. Seat categories come last, as a count and then the category ordinal and one
+     * mask per row for each.
+     */
+    public long appendLayout(AuditoriumLayout layout) {
+        int[] seatsPerRow = layout.getSeatsPerRow();
+        byte[] id = utf8(layout.getId());
+        List<SeatCategory> categories = layout.hasCategories() ? List.of(SeatCategory.values()) : List.of();
+        int categoryBytes = 1 + categories.size() * (1 + 8 * seatsPerRow.length);
+        return append(LAYOUT, 2 + id.length + 2 + seatsPerRow.length + categoryBytes, body -> {
+            putString(body, id);
+            body.putShort((short) seatsPerRow.length);
+            for (int seats : seatsPerRow) {
+                body.put((byte) seats);
+            }
+            body.put((byte) categories.size());
+            for (SeatCategory category : categories) {
+                body.put((byte) category.ordinal());
+                for (int row = 1; row <= seatsPerRow.length; row++) {
+                    body.putLong(layout.categoryMask(category, row));
+                }
+            }
+        });
+    }
+
+    /**
+     * Records a new showing with the name of its placement strategy
+     */
+    public long appendShowing(String showingId, String layoutId, String strategy) {
+        byte[] showing = utf8(showingId);
+        byte[] layout = utf8(layoutId);
+        byte[] strategyName = utf8(strategy);
+        return append(SHOWING, 2 + showing.length + 2 + layout.length + 2 + strategyName.length, body -> {
+            putString(body, showing);
+            putString(body, layout);
+            putString(body, strategyName);
+        });
+    }
+
+    /**
+     * Records seats as sold
+     */
+    public long appendTake(String showingId, int row, long seatMask) {
+        return appendTake(showingId, row, seatMask, null);
+    }
+
+    /**
+     * Records seats as sold in a booking. Seats sold without one are recorded with an empty booking id.
+     */
+    public long appendTake(String showingId, int row, long seatMask, String bookingId) {
+        byte[] showing = utf8(showingId);
+        byte[] booking = utf8(bookingId == null ? "" : bookingId);
+        return append(TAKE, 2 + showing.length + 2 + 8 + 2 + booking.length, body -> {
+            putString(body, showing);
+            body.putShort((short) row);
+            body.putLong(seatMask);
+            putString(body, booking);
+        });
+    }
+
+    /**
+     * Runs {@code register}, which makes a booking of claimed seats cancellable, and records its rows as one
+     * step, the same way as {@link #appendReset(String, Runnable)}. A reset is either journaled after the
+     * booking or seen by {@code register}, which then returns false, nothing is recorded and -1 is returned.
+     */
+    public long appendBooking(String showingId, Booking booking, BooleanSupplier register) {
+        if (dir == null) {
+            return register.getAsBoolean() ? 0L : -1L;
+        }
+        synchronized (this) {
+            checkFailure();
+            if (!register.getAsBoolean()) {
+                return -1L;
+            }
+            long sequence = 0L;
+            for (int row = booking.getFirstRow(); row < booking.getFirstRow() + booking.getRowCount(); row++) {
+                sequence = appendTake(showingId, row, booking.mask(row), booking.getId());
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Runs {@code release}, which frees the seats of a cancelled booking, and records it as one step.
+     * Every other record waits for it, so a booking of the freed seats is always journaled after the
+     * release, and a snapshot covering the record always sees the seats free.
+     */
+    public long appendRelease(String showingId, Booking booking, Runnable release) {
+        if (dir == null) {
+            release.run();
+            return 0L;
+        }
+        byte[] showing = utf8(showingId);
+        byte[] id = utf8(booking.getId());
+        synchronized (this) {
+            checkFailure();
+            release.run();
+            return append(RELEASE, 2 + showing.length + 2 + id.length + 2 + 1 + 8 * booking.getRowCount(), body -> {
+                putString(body, showing);
+                putString(body, id);
+                body.putShort((short) booking.getFirstRow());
+                body.put((byte) booking.getRowCount());
+                for (long seatMask : booking.getSeatMasks()) {
+                    body.putLong(seatMask);
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs {@code reset}, which frees every seat of the showing, and records it as one step, the same
+     * way as {@link #appendRelease(String, Booking, Runnable)}. A booking made after the reset is
+     * always journaled after it, so replay never wipes it.
+     */
+    public long appendReset(String showingId, Runnable reset) {
+        if (dir == null) {
+            reset.run();
+            return 0L;
+        }
+        byte[] showing = utf8(showingId);
+        synchronized (this) {
+            checkFailure();
+            reset.run();
+            return append(RESET, 2 + showing.length, body -> putString(body, showing));
+        }
+    }
+
+    /**
+     * Blocks until every record up to and including {@code sequence} is written, and forced to disk
+     * when fsync is on
+     */
+    public void commit(long sequence) {
+        if (dir == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durableSequence < sequence) {
+                flush(fsync);
+            }
+        }
+    }
+
+    /**
+     * Closes the current segment and starts a new one. Returns the last sequence in the closed segments,
+     * every record after it goes to the new segment.
+     */
+    public long rotate() throws IOException {
+        if (dir == null) {
+            return 0L;
+        }
+        synchronized (flushLock) {
+            long lastSequence = flush(true);
+            if (segment.size() > 0) {
+                FileChannel next = openSegment(dir, lastSequence + 1);
+                segment.close();
+                segment = next;
+            }
+            return lastSequence;
+        }
+    }
+
+    /**
+     * Deletes the segments whose records all have a sequence of at most {@code sequence}
+     */
+    public void deleteSegmentsThrough(long sequence) throws IOException {
+        if (dir == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            List<Path> segments = listSegments(dir);
+            // A segment ends where the next one starts, the last one is still being written
+            for (int i = 0; i + 1 < segments.size(); i++) {
+                if (firstSequence(segments.get(i + 1)) - 1 <= sequence) {
+                    Files.delete(segments.get(i));
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        synchronized (flushLock) {
+            flush(fsync);
+            segment.close();
+        }
+    }
+
+    /**
+     * Writes everything buffered to the current segment and returns the last sequence written.
+     * Must hold flushLock.
+     */
+    private long flush(boolean force) {
+        ByteBuffer batch;
+        long lastSequence;
+        synchronized (this) {
+            checkFailure();
+            batch = pending;
+            pending = spare;
+            spare = batch;
+            lastSequence = nextSequence - 1;
+        }
+
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                segment.write(batch);
+            }
+            if (force) {
+                segment.force(false);
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+            throw new UncheckedIOException("Could not write booking journal", e);
+        } finally {
+            batch.clear();
+        }
+        durableSequence = lastSequence;
+        return lastSequence;
+    }
+
+    private long append(byte type, int payloadBytes, Payload payload) {
+        if (dir == null) {
+            return 0L;
+        }
+        int bodyBytes = 1 + 8 + payloadBytes;
+        if (bodyBytes > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Journal record is too large");
+        }
+
+        synchronized (this) {
+            checkFailure();
+            if (pending.remaining() < HEADER_BYTES + bodyBytes) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + HEADER_BYTES + bodyBytes));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+
+            long sequence = nextSequence++;
+            int start = pending.position();
+            pending.position(start + HEADER_BYTES);
+            pending.put(type);
+            pending.putLong(sequence);
+            payload.write(pending);
+
+            CRC32 crc = new CRC32();
+            crc.update(pending.array(), start + HEADER_BYTES, bodyBytes);
+            pending.putInt(start, bodyBytes);
+            pending.putInt(start + 4, (int) crc.getValue());
+            return sequence;
+        }
+    }
+
+    /**
+     * Replays the record at the buffer's position and returns its sequence, or -1 at the end of the
+     * intact records. Records up to {@code afterSequence} are skipped. The position is only moved past
+     * intact records.
+     */
+    private static long replayRecord(ByteBuffer records, long afterSequence, Handler handler) {
+        int start = records.position();
+        if (records.remaining() < HEADER_BYTES) {
+            return -1L;
+        }
+        int bodyBytes = records.getInt(start);
+        if (bodyBytes < 9 || bodyBytes > MAX_RECORD_BYTES || records.remaining() < HEADER_BYTES + bodyBytes) {
+            return -1L;
+        }
+        ByteBuffer body = records.slice(start + HEADER_BYTES, bodyBytes);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != records.getInt(start + 4)) {
+            return -1L;
+        }
+
+        byte type = body.get();
+        long sequence = body.getLong();
+        if (type < LAYOUT || type > RELEASE) {
+            return -1L;
+        }
+        records.position(start + HEADER_BYTES + bodyBytes);
+        if (sequence <= afterSequence) {
+            return sequence;
+        }
+
+        switch (type) {
+            case LAYOUT -> {
+                String id = getString(body);
+                int[] seatsPerRow = new int[body.getShort()];
+                for (int row = 0; row < seatsPerRow.length; row++) {
+                    seatsPerRow[row] = Byte.toUnsignedInt(body.get());
+                }
+                Map<SeatCategory, long[]> categories = new EnumMap<>(SeatCategory.class);
+                int categoryCount = body.get();
+                for (int i = 0; i < categoryCount; i++) {
+                    long[] masks = new long[seatsPerRow.length];
+                    categories.put(SeatCategory.values()[body.get()], masks);
+                    for (int row = 0; row < masks.length; row++) {
+                        masks[row] = body.getLong();
+                    }
+                }
+                handler.layout(new AuditoriumLayout(id, seatsPerRow, categories));
+            }
+            case SHOWING -> handler.showing(getString(body), getString(body), getString(body));
+            case TAKE -> {
+                String showingId = getString(body);
+                int row = body.getShort();
+                long seatMask = body.getLong();
+                String bookingId = getString(body);
+                handler.take(showingId, row, seatMask, bookingId.isEmpty() ? null : bookingId);
+            }
+            case RELEASE -> {
+                String showingId = getString(body);
+                String bookingId = getString(body);
+                int firstRow = body.getShort();
+                long[] seatMasks = new long[body.get()];
+                for (int row = 0; row < seatMasks.length; row++) {
+                    seatMasks[row] = body.getLong();
+                }
+                handler.release(showingId, bookingId, firstRow, seatMasks);
+            }
+            default -> handler.reset(getString(body));
+        }
+        return sequence;
+    }
+
+    private static FileChannel openSegment(Path dir, long firstSequence) throws IOException {
+        Path path = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX));
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    private static List<Path> listSegments(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted(Comparator.comparingLong(BookingJournal::firstSequence))
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("Booking journal failed earlier", failure);
+        }
+    }
+
+    private static byte[] utf8(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Id is too long for the journal");
+        }
+        return bytes;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private interface Payload {
+        void write(ByteBuffer body);
+    }
+
+    /**
+     * Receives the journal records in the order they were written
+     */
+    public interface Handler {
+
+        void layout(AuditoriumLayout layout);
+
+        void showing(String showingId, String layoutId, String strategy);
+
+        /**
+         * {@code bookingId} is null for seats sold without a booking
+         */
+        void take(String showingId, int row, long seatMask, String bookingId);
+
+        /**
+         * The seats of the cancelled booking, starting at {@code firstRow}, are free again
+         */
+        void release(String showingId, String bookingId, int firstRow, long[] seatMasks);
+
+        void reset(String showingId);
+    }
+}
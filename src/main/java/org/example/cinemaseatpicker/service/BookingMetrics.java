@@ -0,0 +1,127 @@
+package org.example.cinemaseatpicker.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.example.cinemaseatpicker.model.BookingStatus;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for checks, bookings and the state of every showing.
+ * <p>
+ * Timers and counters are created up front and looked up by index, so recording on the hot path is a
+ * clock read, a histogram bucket and a counter increment, with no tags built and nothing allocated.
+ * Showing gauges are only computed when the registry is scraped.
+ */
+public class BookingMetrics {
+
+    private final MeterRegistry registry;
+    private final Timer checkTimer;
+    private final Counter checksAllowed;
+    private final Counter checksRejected;
+    private final Timer bookTimer;
+    // By BookingStatus ordinal, plus one at the end for bookings that failed with an exception
+    private final Counter[] orders;
+    private final Counter replays;
+    private final Counter cancellations;
+
+    public BookingMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.checkTimer = Timer.builder("cinema.seats.check")
+                .description("Time to check a selection against the showing's placement strategy")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.checksAllowed = checkCounter("allowed");
+        this.checksRejected = checkCounter("rejected");
+        this.bookTimer = Timer.builder("cinema.seats.book")
+                .description("Time to check, book and journal a selection")
+                .publishPercentileHistogram()
+                .register(registry);
+
+        BookingStatus[] statuses = BookingStatus.values();
+        this.orders = new Counter[statuses.length + 1];
+        for (BookingStatus status : statuses) {
+            orders[status.ordinal()] = orderCounter(status.name().toLowerCase(Locale.ROOT));
+        }
+        orders[statuses.length] = orderCounter("error");
+        this.replays = Counter.builder("cinema.orders.replayed")
+                .description("Retried orders answered from the idempotency cache")
+                .register(registry);
+        this.cancellations = Counter.builder("cinema.orders.cancelled")
+                .description("Bookings cancelled and their seats returned to sale")
+                .register(registry);
+    }
+
+    /**
+     * Metrics that go nowhere, for services created outside Spring
+     */
+    public static BookingMetrics disabled() {
+        return new BookingMetrics(new CompositeMeterRegistry());
+    }
+
+    public void recordCheck(boolean allowed, long nanos) {
+        checkTimer.record(nanos, TimeUnit.NANOSECONDS);
+        (allowed ? checksAllowed : checksRejected).increment();
+    }
+
+    /**
+     * Counts one order by outcome, a null status means the booking failed with an exception
+     */
+    public void recordOrder(BookingStatus status) {
+        orders[status == null ? orders.length - 1 : status.ordinal()].increment();
+    }
+
+    public void recordBooking(BookingStatus status, long nanos) {
+        bookTimer.record(nanos, TimeUnit.NANOSECONDS);
+        recordOrder(status);
+    }
+
+    public void recordReplay() {
+        replays.increment();
+    }
+
+    public void recordCancellation() {
+        cancellations.increment();
+    }
+
+    /**
+     * Registers the occupancy and isolated seat gauges of a showing
+     */
+    public void register(Showing showing) {
+        SeatOccupancy occupancy = showing.getOccupancy();
+        Gauge.builder("cinema.showing.occupancy", occupancy, BookingMetrics::occupancyRatio)
+                .description("Share of the showing's seats that are taken or held")
+                .tag("showing", showing.getId())
+                .register(registry);
+        Gauge.builder("cinema.showing.isolated.seats", occupancy, SeatOccupancy::getIsolatedSeats)
+                .description("Free seats with both neighbours taken")
+                .tag("showing", showing.getId())
+                .register(registry);
+    }
+
+    private Counter checkCounter(String outcome) {
+        return Counter.builder("cinema.seats.checks")
+                .description("Selections checked, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private Counter orderCounter(String outcome) {
+        return Counter.builder("cinema.orders")
+                .description("Orders, by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    private static double occupancyRatio(SeatOccupancy occupancy) {
+        int taken = 0;
+        for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+            taken += Long.bitCount(occupancy.takenMask(row));
+        }
+        return (double) taken / occupancy.getLayout().getCapacity();
+    }
+}
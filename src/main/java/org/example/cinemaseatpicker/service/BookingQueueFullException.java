@@ -0,0 +1,12 @@
+package org.example.cinemaseatpicker.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BookingQueueFullException extends RuntimeException {
+
+    public BookingQueueFullException(String message) {
+        super(message);
+    }
+}
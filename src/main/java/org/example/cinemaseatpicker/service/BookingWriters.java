@@ -0,0 +1,178 @@
+package org.example.cinemaseatpicker.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.cinemaseatpicker.model.BatchOrderItem;
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.Seat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Orders go through a small, fixed set of writer threads instead of being booked on the request thread.
+ * <p>
+ * Every showing belongs to one writer, picked by hashing its id, and reaches it through that writer's
+ * {@link CommandRing}. A writer drains whatever has queued up and books it as one batch with
+ * {@link SeatPickerService#bookBatch}'s rules, so a busy showing pays for one CAS per row and one journal
+ * commit per batch instead of per order, and buyers racing for the same row never retry against each other.
+ * A full ring is refused with {@link BookingQueueFullException}: a premiere that floods its writer is
+ * turned away at the door while showings on the other writers carry on.
+ * <p>
+ * Holds, confirms and releases stay on the calling thread. Every write to a row is still a CAS, so they
+ * mix safely with the writers.
+ */
+@Service
+public class BookingWriters {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingWriters.class);
+
+    private static final int MAX_BATCH = 256;
+
+    private final SeatPickerService seatPickerService;
+    private final BookingMetrics metrics;
+    private final Writer[] writers;
+
+    private volatile boolean running;
+
+    /**
+     * Starts one writer per core unless {@code threads} is positive
+     */
+    @Autowired
+    public BookingWriters(SeatPickerService seatPickerService,
+                          @Value("${cinema.writers.threads:0}") int threads,
+                          @Value("${cinema.writers.queue-capacity:4096}") int queueCapacity) {
+        this.seatPickerService = seatPickerService;
+        this.metrics = seatPickerService.getMetrics();
+        int count = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.writers = new Writer[count];
+        for (int i = 0; i < count; i++) {
+            writers[i] = new Writer(i, new CommandRing<>(queueCapacity));
+        }
+    }
+
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Writer writer : writers) {
+            writer.thread.start();
+        }
+    }
+
+    /**
+     * Stops the writers once they have booked everything already queued
+     */
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        for (Writer writer : writers) {
+            LockSupport.unpark(writer.thread);
+        }
+        for (Writer writer : writers) {
+            writer.thread.join();
+        }
+    }
+
+    /**
+     * Queues the order on the showing's writer. Selections that can never be booked fail right away,
+     * with the same exceptions as {@link SeatPickerService#bookSeats}.
+     *
+     * @throws BookingQueueFullException if the writer is too far behind to take the order
+     */
+    public CompletableFuture<BatchOrderResult> book(String showingId, List<Seat> selectedSeats) {
+        seatPickerService.validateSelection(showingId, selectedSeats);
+
+        Command command = new Command(new BatchOrderItem(showingId, selectedSeats));
+        Writer writer = writers[Math.floorMod(showingId.hashCode(), writers.length)];
+        if (!writer.ring.offer(command)) {
+            throw new BookingQueueFullException("Too many orders waiting for showing " + showingId + ", try again shortly");
+        }
+        writer.wake();
+        return command.result;
+    }
+
+    private static final class Command {
+        private final BatchOrderItem item;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<BatchOrderResult> result = new CompletableFuture<>();
+
+        Command(BatchOrderItem item) {
+            this.item = item;
+        }
+    }
+
+    private final class Writer {
+        private final CommandRing<Command> ring;
+        private final Thread thread;
+        private volatile boolean sleeping;
+
+        Writer(int index, CommandRing<Command> ring) {
+            this.ring = ring;
+            this.thread = new Thread(this::run, "booking-writer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void wake() {
+            // Pairs with the check in run(): either the writer sees the new command or we see it asleep
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        private void run() {
+            List<Command> batch = new ArrayList<>(MAX_BATCH);
+            while (running) {
+                if (ring.drain(batch, MAX_BATCH) > 0) {
+                    process(batch);
+                    continue;
+                }
+                sleeping = true;
+                if (ring.isEmpty() && running) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+            while (ring.drain(batch, MAX_BATCH) > 0) {
+                process(batch);
+            }
+        }
+
+        private void process(List<Command> batch) {
+            List<BatchOrderItem> items = new ArrayList<>(batch.size());
+            for (Command command : batch) {
+                items.add(command.item);
+            }
+
+            BatchOrderResult[] results = null;
+            RuntimeException failure = null;
+            try {
+                results = seatPickerService.bookAll(items);
+            } catch (RuntimeException e) {
+                log.error("Booking batch of {} orders failed", batch.size(), e);
+                failure = e;
+            }
+
+            long now = System.nanoTime();
+            for (int i = 0; i < batch.size(); i++) {
+                Command command = batch.get(i);
+                metrics.recordBooking(results == null ? null : results[i].getStatus(), now - command.enqueuedAt);
+                if (failure != null) {
+                    command.result.completeExceptionally(failure);
+                } else {
+                    command.result.complete(results[i]);
+                }
+            }
+            batch.clear();
+        }
+    }
+}
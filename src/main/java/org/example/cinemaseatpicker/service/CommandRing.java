@@ -0,0 +1,94 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer, laid out as a ring of slots.
+ * <p>
+ * Every slot carries a sequence number that says whose turn it is. A producer claims the next position
+ * with one CAS on the tail, writes its item and then publishes the slot by moving its sequence on, so the
+ * consumer never sees a half-written slot. The consumer frees a slot by moving the sequence one lap ahead.
+ * A full ring is reported to the producer instead of waiting for space.
+ */
+final class CommandRing<T> {
+
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Only touched by the consumer
+    private long head;
+
+    /**
+     * Capacity is rounded up to a power of two
+     */
+    CommandRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Ring capacity must be between 1 and " + (1 << 30));
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return items.length;
+    }
+
+    /**
+     * Adds the item, or returns false if the ring is full
+     */
+    boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) (position & mask);
+            long gap = sequences.get(index) - position;
+            if (gap == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (gap < 0) {
+                // The slot still holds the item from one lap ago
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Moves up to {@code max} items into the sink in the order they were claimed. Consumer thread only.
+     */
+    @SuppressWarnings("unchecked")
+    int drain(List<? super T> sink, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            sink.add((T) items[index]);
+            items[index] = null;
+            sequences.set(index, head + items.length);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    /**
+     * Whether the next item is not published yet. Consumer thread only.
+     */
+    boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.cinemaseatpicker.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Bounded map whose entries expire a fixed time after they were added, evicting the least recently used
+ * entry when full.
+ * <p>
+ * Keys are spread over segments by hash, each an access-ordered {@link LinkedHashMap} behind its own lock,
+ * so threads only contend when their keys land in the same segment and every operation is O(1). Eviction
+ * is LRU within a segment, segments hold at least {@value #MIN_SEGMENT_ENTRIES} entries so it stays close to
+ * LRU over the whole cache.
+ * Expired entries are dropped when they are looked up, and from the cold end of a segment whenever
+ * something is added to it, so memory never holds more than {@code maxEntries} entries.
+ */
+public class ExpiringLruCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+    private static final int MIN_SEGMENT_ENTRIES = 64;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+
+    public ExpiringLruCache(int maxEntries, Duration ttl) {
+        this(maxEntries, ttl, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    public ExpiringLruCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("Cache needs room for at least one entry");
+        }
+        int segmentCount = Math.min(SEGMENTS, Integer.highestOneBit(Math.max(1, maxEntries / MIN_SEGMENT_ENTRIES)));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            // Spread the remainder so the segments add up to maxEntries
+            segments[i] = new Segment<>(maxEntries / segmentCount + (i < maxEntries % segmentCount ? 1 : 0));
+        }
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Adds the value unless the key already has a live one, which is returned instead
+     */
+    public V putIfAbsent(K key, V value) {
+        Segment<K, V> segment = segment(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> existing = segment.get(key);
+            if (existing != null && now - existing.addedAt < ttlNanos) {
+                return existing.value;
+            }
+            segment.dropExpired(now, ttlNanos);
+            segment.put(key, new Entry<>(value, now));
+            return null;
+        }
+    }
+
+    /**
+     * The live value for the key, or null
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        long now = clock.getAsLong();
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now - entry.addedAt >= ttlNanos) {
+                segment.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+    }
+
+    /**
+     * Removes the key only while it still maps to this value
+     */
+    public boolean remove(K key, V value) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Entry<V> entry = segment.get(key);
+            if (entry == null || entry.value != value) {
+                return false;
+            }
+            segment.remove(key);
+            return true;
+        }
+    }
+
+    /**
+     * Entries held, expired ones included until they are dropped
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment<K, V> segment(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long addedAt;
+
+        Entry(V value, long addedAt) {
+            this.value = value;
+            this.addedAt = addedAt;
+        }
+    }
+
+    private static final class Segment<K, V> extends LinkedHashMap<K, Entry<V>> {
+
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+            return size() > maxEntries;
+        }
+
+        /**
+         * Drops expired entries from the least recently used end, stopping at the first live one
+         */
+        void dropExpired(long now, long ttlNanos) {
+            Iterator<Entry<V>> entries = values().iterator();
+            while (entries.hasNext() && now - entries.next().addedAt >= ttlNanos) {
+                entries.remove();
+            }
+        }
+    }
+}
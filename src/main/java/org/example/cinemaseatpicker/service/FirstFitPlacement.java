@@ -0,0 +1,29 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * The first block that fits, scanning rows from the front and seats from the left.
+ * Cheapest to compute, fills the front of the hall first.
+ */
+public class FirstFitPlacement implements PlacementStrategy {
+
+    public static final String NAME = "first-fit";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random) {
+        for (int row = 1; row <= rows.getTotalRows(); row++) {
+            long starts = RowMasks.fittingStarts(~rows.takenMask(row) & rows.fullMask(row), groupSize);
+            if (starts != 0) {
+                int first = Long.numberOfTrailingZeros(starts) + 1;
+                return new Placement(row, RowMasks.range(first, first + groupSize - 1));
+            }
+        }
+        return null;
+    }
+}
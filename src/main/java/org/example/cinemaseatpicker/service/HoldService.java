@@ -0,0 +1,131 @@
+package org.example.cinemaseatpicker.service;
+
+import jakarta.annotation.PreDestroy;
+import org.example.cinemaseatpicker.model.BestSeatsResponse;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.HoldResponse;
+import org.example.cinemaseatpicker.model.Seat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Hold / confirm / release lifecycle on top of {@link SeatPickerService}.
+ * <p>
+ * Each hold gets one timeout on a shared {@link HashedTimingWheel} instead of its own scheduled task,
+ * so outstanding holds only cost a map entry and a wheel slot. Whichever of confirm, release and expiry
+ * removes the hold from the map first wins, the others find nothing to do.
+ */
+@Service
+public class HoldService {
+
+    private static final int MAX_HOLD_ATTEMPTS = 3;
+
+    private final SeatPickerService seatPickerService;
+    private final HashedTimingWheel wheel;
+    private final Duration ttl;
+    private final Map<String, SeatHold> holds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HoldService(SeatPickerService seatPickerService, @Value("${cinema.hold.ttl:PT10M}") Duration ttl) {
+        this(seatPickerService, new HashedTimingWheel(100, TimeUnit.MILLISECONDS, 512, "seat-hold-wheel"), ttl);
+    }
+
+    public HoldService(SeatPickerService seatPickerService, HashedTimingWheel wheel, Duration ttl) {
+        this.seatPickerService = seatPickerService;
+        this.wheel = wheel;
+        this.ttl = ttl;
+    }
+
+    public HoldResponse hold(String showingId, List<Seat> seats) {
+        SeatHold hold = seatPickerService.holdSeats(UUID.randomUUID().toString(), showingId, seats);
+        if (hold.getStatus() != BookingStatus.HELD) {
+            return new HoldResponse(null, hold.getStatus(), null);
+        }
+
+        // Schedule before publishing, so confirm and release always find the timeout
+        Instant expiresAt = Instant.now().plus(ttl);
+        hold.schedule(expiresAt, wheel.schedule(() -> expire(hold.getId()), ttl.toMillis(), TimeUnit.MILLISECONDS));
+        holds.put(hold.getId(), hold);
+        if (hold.getTimeout().isExpired()) {
+            // The timeout fired before the hold was in the map and found nothing to release
+            expire(hold.getId());
+        }
+        return new HoldResponse(hold.getId(), BookingStatus.HELD, expiresAt);
+    }
+
+    /**
+     * Finds the best block and holds it in one call. If another buyer takes the block between the search
+     * and the hold, the search is repeated on the new state.
+     */
+    public BestSeatsResponse holdBest(String showingId, int party, Integer preferredRow) {
+        return holdBest(showingId, () -> seatPickerService.findBestSeats(showingId, party, preferredRow));
+    }
+
+    /**
+     * Same as {@link #holdBest(String, int, Integer)} with another search, for example
+     * {@link SeatPickerService#findBestScoredSeats}
+     */
+    public BestSeatsResponse holdBest(String showingId, Supplier<List<Seat>> search) {
+        for (int attempt = 0; attempt < MAX_HOLD_ATTEMPTS; attempt++) {
+            List<Seat> seats = search.get();
+            if (seats.isEmpty()) {
+                return new BestSeatsResponse(seats, null);
+            }
+            HoldResponse hold = hold(showingId, seats);
+            if (hold.getStatus() == BookingStatus.HELD) {
+                return new BestSeatsResponse(seats, hold);
+            }
+        }
+        return new BestSeatsResponse(List.of(), new HoldResponse(null, BookingStatus.CONFLICT, null));
+    }
+
+    /**
+     * Sells the held seats. Returns false if the hold is unknown, expired or was wiped by a reset.
+     */
+    public boolean confirm(String holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        hold.getTimeout().cancel();
+        return seatPickerService.confirmHold(hold);
+    }
+
+    /**
+     * Gives the held seats back. Returns false if the hold is unknown or already gone.
+     */
+    public boolean release(String holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold == null) {
+            return false;
+        }
+        hold.getTimeout().cancel();
+        return seatPickerService.releaseHold(hold);
+    }
+
+    public int getOutstandingHolds() {
+        return holds.size();
+    }
+
+    private void expire(String holdId) {
+        SeatHold hold = holds.remove(holdId);
+        if (hold != null) {
+            seatPickerService.releaseHold(hold);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        wheel.close();
+    }
+}
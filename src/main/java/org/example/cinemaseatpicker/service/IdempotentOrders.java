@@ -0,0 +1,100 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.Seat;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Orders sent with an {@code Idempotency-Key}. The first request with a key is booked through the
+ * {@link BookingWriters}, and any retry with the same key gets that request's outcome back, even while it
+ * is still queued, without booking again. Keys live in an {@link ExpiringLruCache}, so memory is bounded
+ * however many clients send keys.
+ * <p>
+ * A key is only kept for outcomes the seats decided. Orders refused before they were booked, because
+ * they were invalid or the queue was full, or that failed in the journal, forget their key so a retry
+ * is tried again. A key reused for different seats is refused with {@link IdempotencyKeyReusedException}.
+ */
+@Service
+public class IdempotentOrders {
+
+    private final BookingWriters bookingWriters;
+    private final BookingMetrics metrics;
+    private final ExpiringLruCache<String, Order> orders;
+
+    @Autowired
+    public IdempotentOrders(BookingWriters bookingWriters, SeatPickerService seatPickerService,
+                            @Value("${cinema.idempotency.max-keys:100000}") int maxKeys,
+                            @Value("${cinema.idempotency.ttl:PT1H}") Duration ttl) {
+        this(bookingWriters, seatPickerService, new ExpiringLruCache<>(maxKeys, ttl));
+    }
+
+    public IdempotentOrders(BookingWriters bookingWriters, SeatPickerService seatPickerService,
+                            ExpiringLruCache<String, Order> orders) {
+        this.bookingWriters = bookingWriters;
+        this.metrics = seatPickerService.getMetrics();
+        this.orders = orders;
+    }
+
+    /**
+     * Books the order, or returns the outcome of the earlier order with the same key. Without a key
+     * every call is a new order.
+     */
+    public CompletableFuture<BatchOrderResult> book(String idempotencyKey, String showingId, List<Seat> selectedSeats) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return bookingWriters.book(showingId, selectedSeats);
+        }
+
+        Order order = new Order(fingerprint(showingId, selectedSeats));
+        Order earlier = orders.putIfAbsent(idempotencyKey, order);
+        if (earlier != null) {
+            if (!earlier.fingerprint.equals(order.fingerprint)) {
+                throw new IdempotencyKeyReusedException("Idempotency key " + idempotencyKey + " was used for another order");
+            }
+            metrics.recordReplay();
+            return earlier.result.copy();
+        }
+
+        try {
+            bookingWriters.book(showingId, selectedSeats).whenComplete((result, failure) -> {
+                if (failure != null) {
+                    orders.remove(idempotencyKey, order);
+                    order.result.completeExceptionally(failure);
+                } else {
+                    order.result.complete(result);
+                }
+            });
+        } catch (RuntimeException e) {
+            orders.remove(idempotencyKey, order);
+            order.result.completeExceptionally(e);
+            throw e;
+        }
+        return order.result.copy();
+    }
+
+    /**
+     * The showing and the seats in a fixed order, so a retry that lists the seats differently still matches
+     */
+    private static String fingerprint(String showingId, List<Seat> selectedSeats) {
+        String seats = selectedSeats == null ? "" : selectedSeats.stream()
+                .map(seat -> seat.getRow() + "-" + seat.getSeat())
+                .sorted()
+                .collect(Collectors.joining(","));
+        return showingId + "/" + seats;
+    }
+
+    public static final class Order {
+        private final String fingerprint;
+        private final CompletableFuture<BatchOrderResult> result = new CompletableFuture<>();
+
+        Order(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+    }
+}
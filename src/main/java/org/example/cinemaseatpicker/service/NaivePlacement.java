@@ -0,0 +1,51 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * A random block that fits and a random position inside it, like a buyer clicking anywhere.
+ * The baseline the other strategies are measured against.
+ */
+public class NaivePlacement implements PlacementStrategy {
+
+    public static final String NAME = "naive";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random) {
+        int candidates = 0;
+        for (int row = 1; row <= rows.getTotalRows(); row++) {
+            candidates += Long.bitCount(runStartsOfAtLeast(~rows.takenMask(row) & rows.fullMask(row), groupSize));
+        }
+        if (candidates == 0) {
+            return null;
+        }
+
+        int pick = random.nextInt(candidates);
+        for (int row = 1; row <= rows.getTotalRows(); row++) {
+            long free = ~rows.takenMask(row) & rows.fullMask(row);
+            for (long starts = runStartsOfAtLeast(free, groupSize); starts != 0; starts &= starts - 1) {
+                if (pick-- > 0) {
+                    continue;
+                }
+                int start = Long.numberOfTrailingZeros(starts);
+                int length = Long.numberOfTrailingZeros(~(free >>> start));
+                int first = start + 1 + random.nextInt(length - groupSize + 1);
+                return new Placement(row, RowMasks.range(first, first + groupSize - 1));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Start bits of the free runs that are at least {@code length} long
+     */
+    private static long runStartsOfAtLeast(long free, int length) {
+        long runStarts = free & ~(free << 1);
+        return runStarts & RowMasks.fittingStarts(free, length);
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.SeatCategory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of every layout and the sold seats of every showing, tagged with the journal sequence
+ * it covers. On startup the snapshot is loaded and only the journal records after that sequence are replayed.
+ * <pre>
+ * magic      4 bytes  'S' 'N' 'A' 'P'
+ * format     1 byte   5
+ * sequence   8 bytes  last journal sequence included
+ * layouts    int count, then id, row count, seats per row (1 byte each) and per layout a category count,
+ *            followed by the category ordinal and one 8 byte mask per row for each category
+ * showings   int count, then id, layout id, strategy name, epoch and one 8 byte seat mask per row per showing,
+ *            followed by its bookings: an int count, then id, epoch, first row, row count and one mask per row each
+ * crc32      4 bytes  over everything before it
+ * </pre>
+ * Strings are a 2 byte length followed by UTF-8. The file is written next to the old one and moved over it,
+ * so a crash while writing leaves the previous snapshot in place. A snapshot of any other format is rejected.
+ */
+public final class OccupancySnapshot {
+
+    public static final String FILE_NAME = "snapshot.bin";
+
+    private static final byte[] MAGIC = {'S', 'N', 'A', 'P'};
+    private static final byte FORMAT = 5;
+
+    private OccupancySnapshot() {
+    }
+
+    /**
+     * Writes the sold seats of every showing in the registry. Held seats are left out, like in the journal.
+     * Rows are read one word at a time without stopping bookings, a booking that lands during the write
+     * may or may not be included and is replayed from the journal either way. Bookings are read before the
+     * rows, so a booking cancelled during the write never leaves its seats sold without it. Only bookings
+     * from the epoch read before them are written, one left over from before a reset can never be cancelled.
+     */
+    public static void write(Path dir, long sequence, ShowingRegistry registry) throws IOException {
+        // Showings before layouts, a layout is registered before any showing that uses it
+        List<Showing> showings = new ArrayList<>(registry.getShowings());
+        List<AuditoriumLayout> layouts = new ArrayList<>(registry.getLayouts());
+
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        buffer.put(MAGIC).put(FORMAT).putLong(sequence);
+
+        buffer = ensure(buffer, 4);
+        buffer.putInt(layouts.size());
+        for (AuditoriumLayout layout : layouts) {
+            int[] seatsPerRow = layout.getSeatsPerRow();
+            buffer = putString(buffer, layout.getId());
+            buffer = ensure(buffer, 2 + seatsPerRow.length);
+            buffer.putShort((short) seatsPerRow.length);
+            for (int seats : seatsPerRow) {
+                buffer.put((byte) seats);
+            }
+            SeatCategory[] categories = layout.hasCategories() ? SeatCategory.values() : new SeatCategory[0];
+            buffer = ensure(buffer, 1 + categories.length * (1 + 8 * seatsPerRow.length));
+            buffer.put((byte) categories.length);
+            for (SeatCategory category : categories) {
+                buffer.put((byte) category.ordinal());
+                for (int row = 1; row <= seatsPerRow.length; row++) {
+                    buffer.putLong(layout.categoryMask(category, row));
+                }
+            }
+        }
+
+        buffer = ensure(buffer, 4);
+        buffer.putInt(showings.size());
+        for (Showing showing : showings) {
+            SeatOccupancy occupancy = showing.getOccupancy();
+            int epoch = occupancy.getEpoch();
+            List<Booking> bookings = showing.getBookings().values().stream()
+                    .filter(booking -> booking.getEpoch() == epoch)
+                    .toList();
+            buffer = putString(buffer, showing.getId());
+            buffer = putString(buffer, showing.getLayout().getId());
+            buffer = putString(buffer, showing.getStrategy().getName());
+            buffer = ensure(buffer, 4 + 8 * occupancy.getTotalRows());
+            buffer.putInt(epoch);
+            for (long sold : occupancy.soldMasks()) {
+                buffer.putLong(sold);
+            }
+            buffer = ensure(buffer, 4);
+            buffer.putInt(bookings.size());
+            for (Booking booking : bookings) {
+                buffer = putString(buffer, booking.getId());
+                buffer = ensure(buffer, 4 + 2 + 1 + 8 * booking.getRowCount());
+                buffer.putInt(booking.getEpoch());
+                buffer.putShort((short) booking.getFirstRow());
+                buffer.put((byte) booking.getRowCount());
+                for (long seatMask : booking.getSeatMasks()) {
+                    buffer.putLong(seatMask);
+                }
+            }
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer = ensure(buffer, 4);
+        buffer.putInt((int) crc.getValue());
+
+        Path target = dir.resolve(FILE_NAME);
+        Path temp = dir.resolve(FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the snapshot into an empty registry and returns the journal sequence it covers,
+     * or -1 if there is no snapshot
+     */
+    public static long load(Path dir, ShowingRegistry registry) throws IOException {
+        Path file = dir.resolve(FILE_NAME);
+        if (!Files.exists(file)) {
+            return -1L;
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.limit() < MAGIC.length + 1 + 8 + 4) {
+            throw new IOException("Snapshot " + file + " is too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, buffer.limit() - 4));
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException("Snapshot " + file + " is corrupt");
+        }
+
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        byte format = buffer.get();
+        if (!Arrays.equals(magic, MAGIC) || format != FORMAT) {
+            throw new IOException("Snapshot " + file + " has an unknown format");
+        }
+        long sequence = buffer.getLong();
+
+        int layouts = buffer.getInt();
+        for (int i = 0; i < layouts; i++) {
+            String id = getString(buffer);
+            int[] seatsPerRow = new int[buffer.getShort()];
+            for (int row = 0; row < seatsPerRow.length; row++) {
+                seatsPerRow[row] = Byte.toUnsignedInt(buffer.get());
+            }
+            Map<SeatCategory, long[]> categories = new EnumMap<>(SeatCategory.class);
+            int categoryCount = buffer.get();
+            for (int c = 0; c < categoryCount; c++) {
+                long[] masks = new long[seatsPerRow.length];
+                categories.put(SeatCategory.values()[buffer.get()], masks);
+                for (int row = 0; row < masks.length; row++) {
+                    masks[row] = buffer.getLong();
+                }
+            }
+            registry.registerLayout(new AuditoriumLayout(id, seatsPerRow, categories));
+        }
+
+        int showings = buffer.getInt();
+        for (int i = 0; i < showings; i++) {
+            String id = getString(buffer);
+            String layoutId = getString(buffer);
+            PlacementStrategy strategy = PlacementStrategies.forName(getString(buffer));
+            Showing showing = registry.createShowing(id, layoutId, strategy);
+            SeatOccupancy occupancy = showing.getOccupancy();
+            occupancy.restoreEpoch(buffer.getInt());
+            for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+                long sold = buffer.getLong();
+                if (sold != 0) {
+                    occupancy.take(row, sold);
+                }
+            }
+            int bookings = buffer.getInt();
+            for (int b = 0; b < bookings; b++) {
+                String bookingId = getString(buffer);
+                int epoch = buffer.getInt();
+                int firstRow = buffer.getShort();
+                long[] seatMasks = new long[buffer.get()];
+                for (int row = 0; row < seatMasks.length; row++) {
+                    seatMasks[row] = buffer.getLong();
+                }
+                showing.getBookings().put(bookingId, new Booking(bookingId, firstRow, seatMasks, epoch));
+            }
+        }
+        return sequence;
+    }
+
+    private static ByteBuffer ensure(ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() >= bytes) {
+            return buffer;
+        }
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        return grown.put(buffer);
+    }
+
+    private static ByteBuffer putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer = ensure(buffer, 2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        return buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,19 @@
+package org.example.cinemaseatpicker.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Seats chosen by a {@link PlacementStrategy}: a row and the mask of the seats in it
+ */
+@Getter
+@AllArgsConstructor
+public class Placement {
+
+    private final int row;
+    private final long seatMask;
+
+    public int getFirstSeat() {
+        return Long.numberOfTrailingZeros(seatMask) + 1;
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.List;
+
+/**
+ * The built-in placement strategies, looked up by name
+ */
+public final class PlacementStrategies {
+
+    public static final PlacementStrategy NAIVE = new NaivePlacement();
+    public static final PlacementStrategy FIRST_FIT = new FirstFitPlacement();
+    public static final PlacementStrategy BEST_FIT = new BestFitPlacement();
+    public static final PlacementStrategy ANTI_FRAGMENTATION = new AntiFragmentationPlacement();
+
+    public static final PlacementStrategy DEFAULT = ANTI_FRAGMENTATION;
+
+    private static final List<PlacementStrategy> ALL = List.of(NAIVE, FIRST_FIT, BEST_FIT, ANTI_FRAGMENTATION);
+
+    private PlacementStrategies() {
+    }
+
+    public static List<PlacementStrategy> all() {
+        return ALL;
+    }
+
+    /**
+     * The strategy with the given name, or the default for null
+     */
+    public static PlacementStrategy forName(String name) {
+        if (name == null || name.isBlank()) {
+            return DEFAULT;
+        }
+        for (PlacementStrategy strategy : ALL) {
+            if (strategy.getName().equals(name)) {
+                return strategy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown placement strategy " + name);
+    }
+}
@@ -0,0 +1,32 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * How a showing places groups. A strategy answers two questions: which seats to suggest for a group
+ * ({@link #place}), and whether a buyer's own selection may be booked ({@link #allows}).
+ * <p>
+ * Strategies are stateless and shared between showings, the service and the simulator, so they only
+ * see seat masks and never touch the occupancy themselves.
+ */
+public interface PlacementStrategy {
+
+    /**
+     * Name used in showing requests, the journal and the simulator
+     */
+    String getName();
+
+    /**
+     * Seats for a group of {@code groupSize} adjacent seats, or null if the group doesn't fit anywhere.
+     * {@code preferredRow} is a hint that strategies are free to ignore.
+     */
+    Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random);
+
+    /**
+     * Whether the free seats in {@code selection} may be booked in a row where {@code taken} is already taken.
+     * {@code freeRunLengths} is the showing-wide free run bitmask of {@link SeatRows#getFreeRunLengths()}.
+     */
+    default boolean allows(long taken, long selection, long fullMask, long freeRunLengths) {
+        return true;
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.cinemaseatpicker.service;
+
+/**
+ * Bit helpers for rows stored as a {@code long} mask.
+ * Seat number n (1-indexed) lives in bit n - 1, a set bit means the seat is taken.
+ */
+public final class RowMasks {
+
+    public static final int MAX_SEATS_PER_ROW = Long.SIZE;
+
+    private RowMasks() {
+    }
+
+    /**
+     * Mask with one bit per seat in a row of the given width
+     */
+    public static long fullMask(int seatsInRow) {
+        return seatsInRow == Long.SIZE ? -1L : (1L << seatsInRow) - 1;
+    }
+
+    /**
+     * Mask for a single seat number
+     */
+    public static long bit(int seatNumber) {
+        return 1L << (seatNumber - 1);
+    }
+
+    /**
+     * Mask for the seat numbers from..to, both inclusive
+     */
+    public static long range(int fromSeat, int toSeat) {
+        return fullMask(toSeat) & ~fullMask(fromSeat - 1);
+    }
+
+    /**
+     * Whether taking {@code selection} leaves a single free seat directly next to one of the selected seats.
+     * <p>
+     * Same verdict as checking the left and right neighbour of every selected seat, but constant time and
+     * branch-free: a free seat is isolated when neither neighbour is free, the row edges count as taken
+     * because the shifts bring in zeros and {@code fullMask} cuts off everything past the last seat.
+     */
+    public static boolean createsFragmentation(long taken, long selection, long fullMask) {
+        long free = ~(taken | selection) & fullMask;
+        long isolated = free & ~(free << 1) & ~(free >>> 1);
+        long besideSelection = (selection << 1) | (selection >>> 1);
+        return (isolated & besideSelection) != 0;
+    }
+
+    /**
+     * Number of free seats with both neighbours taken, the row edges count as taken
+     */
+    public static int isolatedSeats(long free) {
+        return Long.bitCount(free & ~(free << 1) & ~(free >>> 1));
+    }
+
+    /**
+     * Bitmask of the free run lengths in a row, bit n - 1 is set if a run of n free seats exists
+     */
+    public static long runLengths(long free) {
+        long lengths = 0L;
+        while (free != 0) {
+            int start = Long.numberOfTrailingZeros(free);
+            int length = Long.numberOfTrailingZeros(~(free >>> start));
+            lengths |= bit(length);
+            free &= ~range(start + 1, start + length);
+        }
+        return lengths;
+    }
+
+    /**
+     * Number of free runs of exactly the given length in a row
+     */
+    public static int countRuns(long free, int length) {
+        int count = 0;
+        while (free != 0) {
+            int start = Long.numberOfTrailingZeros(free);
+            int runLength = Long.numberOfTrailingZeros(~(free >>> start));
+            if (runLength == length) {
+                count++;
+            }
+            free &= ~range(start + 1, start + runLength);
+        }
+        return count;
+    }
+
+    /**
+     * Start bits of every window of {@code length} free seats, bit i is set if seats i..i+length-1 (0-indexed) are free
+     */
+    public static long fittingStarts(long free, int length) {
+        if (length < 1) {
+            return 0L;
+        }
+        // Doubling: after each step bit i says "at least span free seats from i"
+        long starts = free;
+        int span = 1;
+        while (span * 2 <= length) {
+            starts &= starts >>> span;
+            span *= 2;
+        }
+        if (span < length) {
+            starts &= starts >>> (length - span);
+        }
+        return starts;
+    }
+
+    /**
+     * Start bits of the windows of {@code length} free seats that don't leave a single free seat next to them.
+     * A window is bad if the seat before it starts a free run (so it would be left alone) or the seat after it
+     * ends a free run.
+     */
+    public static long nonFragmentingStarts(long free, int length) {
+        long runStarts = free & ~(free << 1);
+        long runEnds = free & ~(free >>> 1);
+        long badLeft = runStarts << 1;
+        long badRight = length < Long.SIZE ? runEnds >>> length : 0L;
+        return fittingStarts(free, length) & ~badLeft & ~badRight;
+    }
+
+    /**
+     * The start bit closest to {@code target} (0-indexed), or -1 if there are none. Ties go to the left.
+     */
+    public static int closestStart(long starts, int target) {
+        if (starts == 0) {
+            return -1;
+        }
+        long atOrBelow = starts & fullMask(target + 1);
+        long above = starts & ~fullMask(target + 1);
+        int left = atOrBelow == 0 ? -1 : 63 - Long.numberOfLeadingZeros(atOrBelow);
+        int right = above == 0 ? -1 : Long.numberOfTrailingZeros(above);
+        if (left < 0) {
+            return right;
+        }
+        if (right < 0 || target - left <= right - target) {
+            return left;
+        }
+        return right;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.SeatCategory;
+
+import java.util.Set;
+
+/**
+ * Finds the highest-scoring block of a group in a showing, optionally limited to seats of some categories.
+ * <p>
+ * Each row costs a few mask operations: the free seats are intersected with the seats of the requested
+ * categories, the windows that fit are narrowed to those that leave no single seat, and {@link SeatScores}
+ * picks the best of them from its prefix sums. So the search is O(rows) however wide the rows are.
+ * Blocks that leave a single seat are only used when no other block fits and the strategy allows them,
+ * and then a row's starts are tried best first until the strategy allows one.
+ */
+public final class ScoredPlacement {
+
+    private ScoredPlacement() {
+    }
+
+    /**
+     * The best block, or null if none fits. Ties go to the first row.
+     */
+    public static Placement place(SeatRows rows, AuditoriumLayout layout, SeatScores scores,
+                                  PlacementStrategy strategy, int groupSize, Set<SeatCategory> categories) {
+        Placement best = best(rows, layout, scores, null, groupSize, categories);
+        return best != null ? best : best(rows, layout, scores, strategy, groupSize, categories);
+    }
+
+    /**
+     * Without a strategy only non-fragmenting blocks count, with one every fitting block it allows
+     */
+    private static Placement best(SeatRows rows, AuditoriumLayout layout, SeatScores scores,
+                                  PlacementStrategy fallback, int groupSize, Set<SeatCategory> categories) {
+        int bestRow = -1;
+        int bestStart = -1;
+        int bestScore = Integer.MIN_VALUE;
+
+        for (int row = 1; row <= rows.getTotalRows(); row++) {
+            if (rows.longestFreeRun(row) < groupSize) {
+                continue;
+            }
+            long free = ~rows.takenMask(row) & rows.fullMask(row);
+            long starts = RowMasks.fittingStarts(free & layout.eligibleMask(row, categories), groupSize);
+            if (fallback == null) {
+                starts &= RowMasks.nonFragmentingStarts(free, groupSize);
+            }
+
+            // Starts come out best first, so the first one the strategy allows is the best of the row
+            long taken = rows.takenMask(row);
+            for (int start = scores.bestStart(row, starts, groupSize); start >= 0;
+                 start = scores.bestStart(row, starts, groupSize)) {
+                int score = scores.blockScore(row, start + 1, groupSize);
+                if (score <= bestScore) {
+                    break;
+                }
+                if (fallback == null || fallback.allows(taken, RowMasks.range(start + 1, start + groupSize),
+                        rows.fullMask(row), rows.getFreeRunLengths())) {
+                    bestRow = row;
+                    bestStart = start;
+                    bestScore = score;
+                    break;
+                }
+                starts &= ~(1L << start);
+            }
+        }
+        return bestRow < 0 ? null : new Placement(bestRow, RowMasks.range(bestStart + 1, bestStart + groupSize));
+    }
+}
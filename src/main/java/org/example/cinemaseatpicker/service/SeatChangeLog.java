@@ -0,0 +1,77 @@
+package org.example.cinemaseatpicker.service;
+
+/**
+ * Version counter and recent changes of one showing.
+ * <p>
+ * Every change to a row gets the next version and is kept in a small ring of (version, row, changed seats),
+ * so a client that is only a few versions behind gets back exactly the seats that changed. Clients further
+ * behind than the ring fall back to the last version each row changed in, which costs whole rows but is
+ * never wrong. The ring is only allocated once the showing changes for the first time.
+ * <p>
+ * Rows change with CAS and outside any lock. Only the few stores here are serialized, so a reader
+ * that gets version V also sees the bookkeeping of every change up to V.
+ */
+public class SeatChangeLog {
+
+    private static final int CAPACITY = 128;
+
+    private final long[] rowVersions;
+    private long version;
+
+    private long[] ringVersions;
+    private int[] ringRows;
+    private long[] ringMasks;
+
+    public SeatChangeLog(int totalRows) {
+        this.rowVersions = new long[totalRows];
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Records that the given seats changed state and returns the new version
+     */
+    public synchronized long record(int row, long changedSeats) {
+        if (ringVersions == null) {
+            ringVersions = new long[CAPACITY];
+            ringRows = new int[CAPACITY];
+            ringMasks = new long[CAPACITY];
+        }
+        long next = ++version;
+        int slot = (int) (next & (CAPACITY - 1));
+        ringVersions[slot] = next;
+        ringRows[slot] = row;
+        ringMasks[slot] = changedSeats;
+        rowVersions[row - 1] = next;
+        return next;
+    }
+
+    /**
+     * Seats changed after {@code since}, one mask per row (index row - 1). Rows the ring no longer covers
+     * come back with every bit set. Returns null if {@code since} is not a version this log handed out.
+     */
+    public synchronized long[] changesSince(long since) {
+        if (since < 0 || since > version) {
+            return null;
+        }
+
+        long[] changed = new long[rowVersions.length];
+        long oldestInRing = Math.max(1, version - CAPACITY + 1);
+
+        if (since + 1 >= oldestInRing) {
+            for (long v = since + 1; v <= version; v++) {
+                int slot = (int) (v & (CAPACITY - 1));
+                changed[ringRows[slot] - 1] |= ringMasks[slot];
+            }
+        } else {
+            for (int i = 0; i < rowVersions.length; i++) {
+                if (rowVersions[i] > since) {
+                    changed[i] = -1L;
+                }
+            }
+        }
+        return changed;
+    }
+}
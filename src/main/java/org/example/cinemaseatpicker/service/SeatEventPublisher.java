@@ -0,0 +1,244 @@
+package org.example.cinemaseatpicker.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.example.cinemaseatpicker.model.SeatMapDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes seat changes to Server-Sent Event subscribers.
+ * <p>
+ * Nothing is published from the booking path. Once per tick the publisher compares each watched showing's
+ * version with the last one it sent, and if it moved it builds a single delta from the change log,
+ * serializes it once and writes that same payload to every subscriber of the showing. However many bookings,
+ * resets or hold expiries happened during the tick, a subscriber gets at most one write per tick.
+ * <p>
+ * The ticker only queues events. Each subscriber's queue is written by a sender thread, so a stalled client
+ * never holds up the others. A client more than {@value #MAX_PENDING_EVENTS} events behind is closed, and
+ * its browser reconnects with the last event id and catches up from there.
+ */
+@Service
+public class SeatEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatEventPublisher.class);
+
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    private static final int MAX_PENDING_EVENTS = 16;
+
+    private final SeatPickerService seatPickerService;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService ticker;
+    private final ExecutorService sender;
+    private final Map<String, Subscribers> subscribers = new ConcurrentHashMap<>();
+    private long lastHeartbeat = System.currentTimeMillis();
+
+    public SeatEventPublisher(SeatPickerService seatPickerService, ObjectMapper objectMapper,
+                              @Value("${cinema.events.tick:200ms}") Duration tick) {
+        this.seatPickerService = seatPickerService;
+        this.objectMapper = objectMapper;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-event-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "seat-event-sender");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, tick.toMillis(), tick.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Opens a stream for the showing. The subscriber first gets the changes since the version its map was
+     * loaded at, after that it follows the shared ticks.
+     */
+    public SseEmitter subscribe(String showingId, long since) {
+        return subscribe(showingId, since, new SseEmitter(0L));
+    }
+
+    /**
+     * Same as {@link #subscribe(String, long)} with the caller's emitter
+     */
+    public SseEmitter subscribe(String showingId, long since, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(emitter);
+
+        // Under the same key lock as the tick, so no tick falls between the catch-up and the registration
+        Subscribers showing = subscribers.compute(showingId, (id, existing) -> {
+            long version = seatPickerService.getVersion(showingId);
+            Subscribers current = existing != null ? existing : new Subscribers(version);
+            subscriber.others = current.subscribers;
+            current.subscribers.add(subscriber);
+            if (since != version) {
+                subscriber.offer(event(seatPickerService.getSeatChanges(showingId, since)));
+            }
+            return current;
+        });
+        emitter.onCompletion(() -> showing.subscribers.remove(subscriber));
+        emitter.onTimeout(() -> showing.subscribers.remove(subscriber));
+        emitter.onError(e -> showing.subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount(String showingId) {
+        Subscribers showing = subscribers.get(showingId);
+        return showing == null ? 0 : showing.subscribers.size();
+    }
+
+    /**
+     * Queues one event per watched showing that changed since the last tick. The ticker calls this every tick.
+     */
+    public void tick() {
+        try {
+            boolean heartbeat = System.currentTimeMillis() - lastHeartbeat >= HEARTBEAT_MILLIS;
+            if (heartbeat) {
+                lastHeartbeat = System.currentTimeMillis();
+            }
+
+            for (String showingId : subscribers.keySet()) {
+                subscribers.computeIfPresent(showingId, (id, showing) -> publish(id, showing, heartbeat));
+            }
+        } catch (RuntimeException e) {
+            // scheduleWithFixedDelay stops for good on an exception, so log and keep ticking
+            log.warn("Publishing seat events failed", e);
+        }
+    }
+
+    /**
+     * Queues the showing's event for every subscriber, runs under the showing's key lock like
+     * {@link #subscribe(String, long, SseEmitter)}. Returns null to drop a showing nobody watches.
+     */
+    private Subscribers publish(String showingId, Subscribers showing, boolean heartbeat) {
+        if (showing.subscribers.isEmpty()) {
+            return null;
+        }
+
+        long version = seatPickerService.getVersion(showingId);
+        if (version != showing.lastVersion) {
+            SeatMapDelta delta = seatPickerService.getSeatChanges(showingId, showing.lastVersion);
+            showing.lastVersion = delta.getVersion();
+            Set<ResponseBodyEmitter.DataWithMediaType> event = event(delta);
+            for (Subscriber subscriber : showing.subscribers) {
+                subscriber.offer(event);
+            }
+        } else if (heartbeat) {
+            Set<ResponseBodyEmitter.DataWithMediaType> event = SseEmitter.event().comment("keep-alive").build();
+            for (Subscriber subscriber : showing.subscribers) {
+                subscriber.offer(event);
+            }
+        }
+        return showing;
+    }
+
+    /**
+     * Serializes and frames the delta once, the same event is written to every subscriber
+     */
+    private Set<ResponseBodyEmitter.DataWithMediaType> event(SeatMapDelta delta) {
+        return SseEmitter.event()
+                .name("seats")
+                .id(Long.toString(delta.getVersion()))
+                .data(serialize(delta), MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private String serialize(SeatMapDelta delta) {
+        try {
+            return objectMapper.writeValueAsString(delta);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize seat changes", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        ticker.shutdownNow();
+        sender.shutdownNow();
+        subscribers.values().forEach(showing -> showing.subscribers.forEach(subscriber -> subscriber.emitter.complete()));
+    }
+
+    private static final class Subscribers {
+
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        // Only touched under the showing's key lock
+        private long lastVersion;
+
+        private Subscribers(long lastVersion) {
+            this.lastVersion = lastVersion;
+        }
+    }
+
+    /**
+     * One stream and the events queued for it. Only one sender drains a queue at a time, so events
+     * go out in the order they were queued.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Queue<Set<ResponseBodyEmitter.DataWithMediaType>> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private List<Subscriber> others;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        private void offer(Set<ResponseBodyEmitter.DataWithMediaType> event) {
+            if (pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+                // Too far behind, the browser reconnects with its last event id and catches up
+                drop();
+                return;
+            }
+            pending.add(event);
+            if (draining.compareAndSet(false, true)) {
+                sender.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<ResponseBodyEmitter.DataWithMediaType> event;
+                while ((event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        others.remove(this);
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private void drop() {
+            if (others.remove(this)) {
+                // Completing waits for a send in progress, so leave that to a sender too
+                sender.execute(emitter::complete);
+            }
+        }
+    }
+}
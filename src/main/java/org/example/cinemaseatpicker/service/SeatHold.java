@@ -0,0 +1,38 @@
+package org.example.cinemaseatpicker.service;
+
+import lombok.Getter;
+import org.example.cinemaseatpicker.model.BookingStatus;
+
+import java.time.Instant;
+
+/**
+ * Seats in one row that are temporarily reserved for a customer in checkout
+ */
+@Getter
+public class SeatHold {
+
+    private final String id;
+    private final String showingId;
+    private final int row;
+    private final long seatMask;
+    private final int epoch;
+    private final BookingStatus status;
+
+    // Set by HoldService once the hold is placed
+    private Instant expiresAt;
+    private HashedTimingWheel.Timeout timeout;
+
+    SeatHold(String id, String showingId, int row, long seatMask, int epoch, BookingStatus status) {
+        this.id = id;
+        this.showingId = showingId;
+        this.row = row;
+        this.seatMask = seatMask;
+        this.epoch = epoch;
+        this.status = status;
+    }
+
+    void schedule(Instant expiresAt, HashedTimingWheel.Timeout timeout) {
+        this.expiresAt = expiresAt;
+        this.timeout = timeout;
+    }
+}
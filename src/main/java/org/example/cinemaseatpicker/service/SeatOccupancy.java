@@ -0,0 +1,336 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Occupancy of one showing, one {@code long} bitmask per row.
+ * Only the masks are stored per showing, the geometry comes from the shared {@link AuditoriumLayout}.
+ * Rows and seats are 1-indexed to match {@link org.example.cinemaseatpicker.model.Seat}.
+ * <p>
+ * Each row word is only ever changed with compare-and-set, so concurrent bookings never lock and
+ * bookings in different rows never contend. A seat can only go from free to taken in a successful
+ * CAS against the word it was checked against, which is what rules out double-booking.
+ * <p>
+ * Alongside the masks it keeps a histogram of free runs (blocks of adjacent free seats) by length.
+ * Every change only rescans the row it touches, so run questions never have to look at the rows.
+ * The histogram is applied after the row CAS and may lag a concurrent booking by one update.
+ * Each row also keeps its own run length bitmask, so searches can skip rows without a long enough block.
+ * <p>
+ * Held seats are taken in the row word like sold seats, so a hold claims them with the same CAS.
+ * A separate held mask records which of the taken seats belong to a hold, and the epoch is bumped
+ * on every reset so holds placed before it can no longer touch the row.
+ * A hold changes the row word and the held mask in two steps, so it does both under the shared side of
+ * the hold lock and {@link #soldMasks()} reads under the exclusive side. Holds never wait on each other.
+ */
+public class SeatOccupancy implements SeatRows {
+
+    private final AuditoriumLayout layout;
+    private final AtomicLongArray rows;
+    private final AtomicLongArray held;
+    private final AtomicInteger epoch = new AtomicInteger();
+    private final SeatChangeLog changeLog;
+    private final ReadWriteLock holdLock = new ReentrantReadWriteLock();
+
+    // freeRuns[n] = number of free blocks of exactly n seats
+    private final AtomicIntegerArray freeRuns;
+    // bit n - 1 is set while freeRuns[n] > 0
+    private final AtomicLong freeRunLengths = new AtomicLong();
+    // Per row, bit n - 1 is set while the row has a free block of exactly n seats
+    private final AtomicLongArray rowRunLengths;
+
+    public SeatOccupancy(AuditoriumLayout layout) {
+        this.layout = layout;
+        this.rows = new AtomicLongArray(layout.getTotalRows());
+        this.held = new AtomicLongArray(layout.getTotalRows());
+        this.changeLog = new SeatChangeLog(layout.getTotalRows());
+        this.freeRuns = new AtomicIntegerArray(layout.getMaxSeatsInRow() + 1);
+        this.rowRunLengths = new AtomicLongArray(layout.getTotalRows());
+        for (int row = 1; row <= layout.getTotalRows(); row++) {
+            addFreeRuns(fullMask(row), 1);
+            rowRunLengths.set(row - 1, RowMasks.runLengths(fullMask(row)));
+        }
+    }
+
+    public AuditoriumLayout getLayout() {
+        return layout;
+    }
+
+    @Override
+    public int getTotalRows() {
+        return rows.length();
+    }
+
+    @Override
+    public int getSeatsInRow(int row) {
+        return layout.getSeatsInRow(row);
+    }
+
+    /**
+     * Mask of every seat in the row, taken or not
+     */
+    @Override
+    public long fullMask(int row) {
+        return layout.fullMask(row);
+    }
+
+    /**
+     * Mask of the taken seats in the row
+     */
+    @Override
+    public long takenMask(int row) {
+        checkRow(row);
+        return rows.get(row - 1);
+    }
+
+    public boolean isTaken(int row, int seatNumber) {
+        return (takenMask(row) & RowMasks.bit(seatNumber)) != 0;
+    }
+
+    /**
+     * Replaces the row word if it still equals {@code expected}
+     */
+    public boolean compareAndSet(int row, long expected, long update) {
+        checkSeats(row, update);
+        if (!rows.compareAndSet(row - 1, expected, update)) {
+            return false;
+        }
+        if (expected != update) {
+            updateFreeRuns(row, expected, update);
+            changeLog.record(row, expected ^ update);
+        }
+        return true;
+    }
+
+    /**
+     * Marks every seat in the mask as taken
+     */
+    public void take(int row, long seatMask) {
+        checkSeats(row, seatMask);
+        long before;
+        do {
+            before = rows.get(row - 1);
+        } while (!compareAndSet(row, before, before | seatMask));
+    }
+
+    /**
+     * Frees every seat in the mask
+     */
+    public void release(int row, long seatMask) {
+        checkSeats(row, seatMask);
+        long before;
+        do {
+            before = rows.get(row - 1);
+        } while (!compareAndSet(row, before, before & ~seatMask));
+    }
+
+    /**
+     * Mask of the taken seats in the row that are held rather than sold
+     */
+    public long heldMask(int row) {
+        checkRow(row);
+        return held.get(row - 1);
+    }
+
+    public void markHeld(int row, long seatMask) {
+        checkSeats(row, seatMask);
+        held.getAndAccumulate(row - 1, seatMask, (current, add) -> current | add);
+    }
+
+    /**
+     * Removes the held marker from the seats in the mask and returns the ones that were held
+     */
+    public long clearHeld(int row, long seatMask) {
+        checkSeats(row, seatMask);
+        long before = held.getAndAccumulate(row - 1, seatMask, (current, remove) -> current & ~remove);
+        return before & seatMask;
+    }
+
+    /**
+     * Lock to take around claiming or freeing held seats, so a snapshot never sees them half way
+     */
+    public Lock getHoldLock() {
+        return holdLock.readLock();
+    }
+
+    /**
+     * Masks of the sold seats per row, index 0 for row 1, with no hold half way through
+     */
+    public long[] soldMasks() {
+        long[] sold = new long[rows.length()];
+        holdLock.writeLock().lock();
+        try {
+            for (int i = 0; i < sold.length; i++) {
+                sold[i] = rows.get(i) & ~held.get(i);
+            }
+        } finally {
+            holdLock.writeLock().unlock();
+        }
+        return sold;
+    }
+
+    public SeatChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    public int getEpoch() {
+        return epoch.get();
+    }
+
+    /**
+     * Sets the epoch a snapshot was taken at, before anything is booked in the occupancy
+     */
+    void restoreEpoch(int restored) {
+        epoch.set(restored);
+    }
+
+    /**
+     * Frees every seat, row by row, so bookings racing with the reset stay consistent with the histogram.
+     * Outstanding holds are invalidated.
+     */
+    public void clear() {
+        epoch.incrementAndGet();
+        for (int row = 1; row <= rows.length(); row++) {
+            held.set(row - 1, 0L);
+            long before = rows.getAndSet(row - 1, 0L);
+            if (before != 0L) {
+                updateFreeRuns(row, before, 0L);
+                changeLog.record(row, before);
+            }
+        }
+    }
+
+    /**
+     * Number of free blocks of exactly the given length
+     */
+    public int freeRunCount(int length) {
+        return length < 1 || length >= freeRuns.length() ? 0 : freeRuns.get(length);
+    }
+
+    /**
+     * Free seats with both neighbours taken (or at the end of the row), read from the free-run index
+     */
+    public int getIsolatedSeats() {
+        return freeRunCount(1);
+    }
+
+    /**
+     * Whether some row has a free block of exactly the given length
+     */
+    public boolean hasFreeRun(int length) {
+        return length >= 1 && length <= RowMasks.MAX_SEATS_PER_ROW
+                && (freeRunLengths.get() & RowMasks.bit(length)) != 0;
+    }
+
+    /**
+     * Whether some row has a free block of the given length or longer
+     */
+    public boolean hasFreeRunOfAtLeast(int length) {
+        if (length <= 1) {
+            return freeRunLengths.get() != 0;
+        }
+        return length <= RowMasks.MAX_SEATS_PER_ROW && (freeRunLengths.get() >>> (length - 1)) != 0;
+    }
+
+    /**
+     * Bitmask of the free run lengths across the showing, bit n - 1 is set if a run of n seats exists
+     */
+    @Override
+    public long getFreeRunLengths() {
+        return freeRunLengths.get();
+    }
+
+    /**
+     * Read from the per-row index instead of rescanning the row
+     */
+    @Override
+    public int longestFreeRun(int row) {
+        checkRow(row);
+        return Long.SIZE - Long.numberOfLeadingZeros(rowRunLengths.get(row - 1));
+    }
+
+    /**
+     * Free run lengths of every row except one, given the state of that row the histogram was built from.
+     * Used when a row is being changed locally and its own runs are re-added from the new state.
+     */
+    public long freeRunLengthsWithout(int row, long taken) {
+        long lengths = freeRunLengths.get();
+        long rowLengths = RowMasks.runLengths(~taken & fullMask(row));
+        for (long remaining = rowLengths; remaining != 0; remaining &= remaining - 1) {
+            int length = Long.numberOfTrailingZeros(remaining) + 1;
+            if (freeRunCount(length) <= RowMasks.countRuns(~taken & fullMask(row), length)) {
+                lengths &= ~RowMasks.bit(length);
+            }
+        }
+        return lengths;
+    }
+
+    private void updateFreeRuns(int row, long before, long after) {
+        long full = fullMask(row);
+        addFreeRuns(~before & full, -1);
+        addFreeRuns(~after & full, 1);
+        refreshRowRunLengths(row);
+    }
+
+    /**
+     * Recomputes the row's run lengths from the current row word until the word is unchanged after the write,
+     * so the index always ends up describing the last CAS
+     */
+    private void refreshRowRunLengths(int row) {
+        long full = fullMask(row);
+        while (true) {
+            long taken = rows.get(row - 1);
+            rowRunLengths.set(row - 1, RowMasks.runLengths(~taken & full));
+            if (rows.get(row - 1) == taken) {
+                return;
+            }
+        }
+    }
+
+    private void addFreeRuns(long free, int delta) {
+        while (free != 0) {
+            int start = Long.numberOfTrailingZeros(free);
+            int length = Long.numberOfTrailingZeros(~(free >>> start));
+
+            freeRuns.addAndGet(length, delta);
+            refreshFreeRunLength(length);
+
+            free &= ~RowMasks.range(start + 1, start + length);
+        }
+    }
+
+    /**
+     * Brings the presence bit for a run length in line with its count. Retries until the count
+     * is unchanged after the bit was written, so the last writer of a count always fixes the bit.
+     */
+    private void refreshFreeRunLength(int length) {
+        long bit = RowMasks.bit(length);
+        while (true) {
+            int count = freeRuns.get(length);
+            long current = freeRunLengths.get();
+            long next = count > 0 ? current | bit : current & ~bit;
+            if ((current == next || freeRunLengths.compareAndSet(current, next)) && freeRuns.get(length) == count) {
+                return;
+            }
+        }
+    }
+
+    private void checkRow(int row) {
+        if (row < 1 || row > rows.length()) {
+            throw new IllegalArgumentException("Row " + row + " does not exist");
+        }
+    }
+
+    private void checkSeats(int row, long seatMask) {
+        if ((seatMask & ~fullMask(row)) != 0) {
+            throw new IllegalArgumentException("Seat mask " + Long.toBinaryString(seatMask) + " is outside row " + row);
+        }
+    }
+}
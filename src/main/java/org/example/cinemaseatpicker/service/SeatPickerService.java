@@ -1,213 +1,901 @@
 package org.example.cinemaseatpicker.service;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.BatchOrderItem;
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BookingStatus;
 import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.model.SeatCategory;
+import org.example.cinemaseatpicker.model.SeatMapDelta;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 @Service
 public class SeatPickerService {
 
-    private final Map<Integer, List<Seat>> seatMap = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(SeatPickerService.class);
 
+    public static final String DEFAULT_LAYOUT_ID = "default";
+    public static final String DEFAULT_SHOWING_ID = "default";
+
+    private final ShowingRegistry registry = new ShowingRegistry();
+    private final Path dataDir;
+    private final boolean journalFsync;
+    private final Duration snapshotInterval;
+    private final BookingMetrics metrics;
+    private BookingJournal journal = BookingJournal.disabled();
+    private ScheduledExecutorService snapshots;
+
+    public SeatPickerService() {
+        this("", true, Duration.ZERO);
+    }
+
+    public SeatPickerService(String dataDir, boolean journalFsync, Duration snapshotInterval) {
+        this(dataDir, journalFsync, snapshotInterval, BookingMetrics.disabled());
+    }
+
+    /**
+     * With a data directory, sold seats are journaled there and snapshotted every {@code snapshotInterval}
+     * (never if zero). Without one they only live in memory.
+     */
+    @Autowired
+    public SeatPickerService(@Value("${cinema.journal.dir:}") String dataDir,
+                             @Value("${cinema.journal.fsync:true}") boolean journalFsync,
+                             @Value("${cinema.snapshot.interval:PT5M}") Duration snapshotInterval,
+                             MeterRegistry meterRegistry) {
+        this(dataDir, journalFsync, snapshotInterval, new BookingMetrics(meterRegistry));
+    }
+
+    private SeatPickerService(String dataDir, boolean journalFsync, Duration snapshotInterval, BookingMetrics metrics) {
+        this.dataDir = dataDir == null || dataDir.isBlank() ? null : Path.of(dataDir);
+        this.journalFsync = journalFsync;
+        this.snapshotInterval = snapshotInterval;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Loads the latest snapshot and the journal after it, or starts with the default showing when there is none
+     */
     @PostConstruct
     public void initSeats() {
-        int totalRows = 5;
-        int seatsPerRow = 10;
+        long sequence = -1L;
+        if (dataDir != null) {
+            try {
+                sequence = OccupancySnapshot.load(dataDir, registry);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not load snapshot from " + dataDir, e);
+            }
+        }
+        if (sequence < 0) {
+            registry.registerLayout(AuditoriumLayout.uniform(DEFAULT_LAYOUT_ID, 5, 10));
+            registry.createShowing(DEFAULT_SHOWING_ID, DEFAULT_LAYOUT_ID);
+        }
+        if (dataDir != null) {
+            try {
+                journal = BookingJournal.open(dataDir, journalFsync, Math.max(sequence, 0L), new JournalReplay());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not open booking journal in " + dataDir, e);
+            }
+        }
+        registry.getShowings().forEach(metrics::register);
+        if (dataDir == null) {
+            return;
+        }
 
-        for (int row = 1; row <= totalRows; row++) {
-            List<Seat> seats = new ArrayList<>();
+        if (!snapshotInterval.isZero()) {
+            snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "seat-snapshots");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long millis = snapshotInterval.toMillis();
+            snapshots.scheduleWithFixedDelay(this::snapshotQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
 
-            for (int num = 1; num <= seatsPerRow; num++) {
-                seats.add(new Seat(num, row, false));
-            }
+    /**
+     * Writes a snapshot of every showing and drops the journal segments it covers. Bookings carry on while
+     * it runs: the journal is rotated first, so every record in the old segments is already in memory when
+     * the rows are read, and anything newer is replayed from the new segment on top of the snapshot.
+     */
+    public synchronized void snapshot() throws IOException {
+        if (dataDir == null) {
+            return;
+        }
+        long sequence = journal.rotate();
+        OccupancySnapshot.write(dataDir, sequence, registry);
+        journal.deleteSegmentsThrough(sequence);
+    }
+
+    @PreDestroy
+    public void closeJournal() throws IOException {
+        if (snapshots != null) {
+            snapshots.shutdownNow();
+        }
+        journal.close();
+    }
 
-            seatMap.put(row, seats);
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            // The journal still has everything, the next snapshot tries again
+            log.warn("Could not write snapshot", e);
         }
     }
 
+    public ShowingRegistry getRegistry() {
+        return registry;
+    }
+
+    public AuditoriumLayout registerLayout(AuditoriumLayout layout) {
+        registry.registerLayout(layout);
+        journal.commit(journal.appendLayout(layout));
+        return layout;
+    }
+
+    public Showing createShowing(String showingId, String layoutId) {
+        return createShowing(showingId, layoutId, null);
+    }
+
+    /**
+     * Creates a showing that places groups with the named {@link PlacementStrategy}, the default one if null
+     */
+    public Showing createShowing(String showingId, String layoutId, String strategyName) {
+        PlacementStrategy strategy = PlacementStrategies.forName(strategyName);
+        Showing showing = registry.createShowing(showingId, layoutId, strategy);
+        journal.commit(journal.appendShowing(showingId, layoutId, strategy.getName()));
+        metrics.register(showing);
+        return showing;
+    }
+
     public List<Seat> getAllSeats() {
-        List<Seat> allSeats = new ArrayList<>();
-        for (int row = 1; row <= 5; row++) {
-            allSeats.addAll(seatMap.get(row));
+        return getAllSeats(DEFAULT_SHOWING_ID);
+    }
+
+    public List<Seat> getAllSeats(String showingId) {
+        SeatOccupancy occupancy = occupancy(showingId);
+        List<Seat> allSeats = new ArrayList<>(occupancy.getLayout().getCapacity());
+        for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+            long taken = occupancy.takenMask(row);
+            for (int num = 1; num <= occupancy.getSeatsInRow(row); num++) {
+                allSeats.add(new Seat(num, row, (taken & RowMasks.bit(num)) != 0));
+            }
         }
         return allSeats;
     }
 
-    public List<Seat> resetSeats() {
-        for (int row = 1; row <= 5; row++) {
-            for (Seat seat : seatMap.get(row)) {
-                seat.setTaken(false);
+    /**
+     * Current version of the showing's seat map, bumped by every change
+     */
+    public long getVersion(String showingId) {
+        return occupancy(showingId).getChangeLog().getVersion();
+    }
+
+    /**
+     * The seat map in the compact {@link SeatMapCodec} encoding, without building any Seat objects
+     */
+    public byte[] getEncodedSeatMap(String showingId) {
+        SeatOccupancy occupancy = occupancy(showingId);
+        // Version first, like getSeatChanges
+        long version = occupancy.getChangeLog().getVersion();
+        return SeatMapCodec.encode(occupancy, version);
+    }
+
+    /**
+     * Seats that changed after the given version, with their current state. Falls back to the full map
+     * when the version is unknown, e.g. from before a restart.
+     */
+    public SeatMapDelta getSeatChanges(String showingId, long since) {
+        SeatOccupancy occupancy = occupancy(showingId);
+        SeatChangeLog changeLog = occupancy.getChangeLog();
+        // Read the version first, changes made while we build the list are simply sent again next time
+        long version = changeLog.getVersion();
+        long[] changed = changeLog.changesSince(since);
+        if (changed == null) {
+            return new SeatMapDelta(version, true, getAllSeats(showingId));
+        }
+
+        List<Seat> seats = new ArrayList<>();
+        for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+            long rowChanges = changed[row - 1] & occupancy.fullMask(row);
+            long taken = occupancy.takenMask(row);
+            for (long remaining = rowChanges; remaining != 0; remaining &= remaining - 1) {
+                int seat = Long.numberOfTrailingZeros(remaining) + 1;
+                seats.add(new Seat(seat, row, (taken & RowMasks.bit(seat)) != 0));
             }
         }
-        return getAllSeats();
+        return new SeatMapDelta(version, false, seats);
+    }
+
+    public List<Seat> resetSeats() {
+        return resetSeats(DEFAULT_SHOWING_ID);
+    }
+
+    public List<Seat> resetSeats(String showingId) {
+        Showing showing = registry.getShowing(showingId);
+        journal.commit(journal.appendReset(showingId, () -> clear(showing)));
+        return getAllSeats(showingId);
     }
 
     public void setupTestScenario() {
-        // Reset all seats first
+        setupTestScenario(DEFAULT_SHOWING_ID);
+    }
+
+    public void setupTestScenario(String showingId) {
+        Showing showing = registry.getShowing(showingId);
+        SeatOccupancy occupancy = showing.getOccupancy();
+        AuditoriumLayout layout = occupancy.getLayout();
         for (int row = 1; row <= 5; row++) {
-            for (Seat seat : seatMap.get(row)) {
-                seat.setTaken(false);
+            if (row > layout.getTotalRows() || layout.getSeatsInRow(row) < 10) {
+                throw new IllegalArgumentException("The test scenario needs at least 5 rows of 10 seats");
             }
         }
 
+        // Reset all seats first
+        long sequence = journal.appendReset(showingId, () -> clear(showing));
+
         // Row 1: Completely full (all taken) - baseline
-        for (int i = 5; i < 10; i++) {
-            seatMap.get(1).get(i).setTaken(true);
-        }
+        occupancy.take(1, RowMasks.range(6, 10));
 
         // Row 2: Only seats 5-6 available (2 seats together) - valid selection test
-        for (int i = 0; i < 10; i++) {
-            if (i != 4 && i != 5) { // seat 5 and 6 are at index 4 and 5
-                seatMap.get(2).get(i).setTaken(true);
-            }
-        }
+        occupancy.take(2, RowMasks.range(1, 4) | RowMasks.range(7, 10));
 
         // Row 3: Seats 2, 4, 6, 8 available (isolated singles) - test if we can select when no alternatives exist
-        for (int i = 0; i < 10; i++) {
-             // seats 2, 4, 6, 8
-                seatMap.get(3).get(i).setTaken(true);
-
-        }
+        occupancy.take(3, RowMasks.range(1, 10));
 
         // Row 4: Seats 1-4 available (4 consecutive) - test "2 left OR 2 right, not 2 middle" rule
-        for (int i = 4; i < 10; i++) { // Mark seats 5-10 as taken
-            seatMap.get(4).get(i).setTaken(true);
-        }
+        occupancy.take(4, RowMasks.range(5, 10));
 
         // Row 5: Seats 7-10 available (4 at edge) - another "2 left OR 2 right" test
-        for (int i = 0; i < 6; i++) { // Mark seats 1-6 as taken
-            seatMap.get(5).get(i).setTaken(true);
+        occupancy.take(5, RowMasks.range(1, 6));
+
+        for (int row = 1; row <= 5; row++) {
+            sequence = journal.appendTake(showingId, row, occupancy.takenMask(row));
         }
+        journal.commit(sequence);
+    }
+
+    private static void clear(Showing showing) {
+        showing.getOccupancy().clear();
+        showing.getBookings().clear();
     }
 
     public void orderSeats(List<Seat> selectedSeats) {
+        orderSeats(DEFAULT_SHOWING_ID, selectedSeats);
+    }
+
+    public void orderSeats(String showingId, List<Seat> selectedSeats) {
+        SeatOccupancy occupancy = occupancy(showingId);
+        long sequence = 0L;
         for (Seat selectedSeat : selectedSeats) {
-            List<Seat> rowSeats = seatMap.get(selectedSeat.getRow());
-            for (Seat seat : rowSeats) {
-                if (seat.getSeat() == selectedSeat.getSeat()) {
-                    seat.setTaken(true);
-                    break;
+            int row = selectedSeat.getRow();
+            long seat = seatBit(occupancy, row, selectedSeat.getSeat());
+            occupancy.take(row, seat);
+            sequence = journal.appendTake(showingId, row, seat);
+        }
+        journal.commit(sequence);
+    }
+
+    public boolean checkSeats(List<Seat> selectedSeats) {
+        return checkSeats(DEFAULT_SHOWING_ID, selectedSeats);
+    }
+
+    /**
+     * Whether the showing's {@link PlacementStrategy} allows the selection. With the default strategy a
+     * selection that leaves a single seat is rejected while better alternatives exist.
+     */
+    public boolean checkSeats(String showingId, List<Seat> selectedSeats) {
+        long started = System.nanoTime();
+        Showing showing = registry.getShowing(showingId);
+        SeatOccupancy occupancy = showing.getOccupancy();
+        SeatSelection selection = SeatSelection.of(occupancy, selectedSeats);
+
+        boolean allowed = true;
+        for (int row = selection.getFirstRow(); row < selection.getFirstRow() + selection.getRowCount(); row++) {
+            allowed &= showing.getStrategy().allows(occupancy.takenMask(row), selection.mask(row),
+                    occupancy.fullMask(row), occupancy.getFreeRunLengths());
+        }
+        metrics.recordCheck(allowed, System.nanoTime() - started);
+        return allowed;
+    }
+
+    /**
+     * Checks and books the selection as one atomic step. The row word is read, validated and then
+     * replaced with compare-and-set, so two buyers can never both pass the check for the same seats.
+     * A failed CAS means the row changed in between and the check is simply redone on the new state.
+     * A booking is only reported once it is in the journal.
+     * <p>
+     * A block over adjacent rows is claimed row by row and the rows already claimed are given back when a
+     * later row fails, so it is booked completely or not at all. Other buyers may see the first rows taken
+     * for that moment.
+     */
+    public BookingStatus bookSeats(String showingId, List<Seat> selectedSeats) {
+        long started = System.nanoTime();
+        BookingStatus status = null;
+        try {
+            Showing showing = registry.getShowing(showingId);
+            SeatOccupancy occupancy = showing.getOccupancy();
+            SeatSelection selection = SeatSelection.of(occupancy, selectedSeats);
+            BookingStatus claimed = claim(showing, selection);
+            if (claimed == BookingStatus.BOOKED) {
+                journalTake(occupancy, showingId, selection);
+            }
+            status = claimed;
+            return claimed;
+        } catch (IllegalArgumentException | ShowingNotFoundException e) {
+            status = BookingStatus.INVALID;
+            throw e;
+        } finally {
+            metrics.recordBooking(status, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Claims the seats with the same check as {@link #bookSeats(String, List)} but marks them as held.
+     * The returned hold has status HELD when the seats were claimed.
+     */
+    public SeatHold holdSeats(String holdId, String showingId, List<Seat> selectedSeats) {
+        Showing showing = registry.getShowing(showingId);
+        SeatOccupancy occupancy = showing.getOccupancy();
+        SeatSelection seats = SeatSelection.of(occupancy, selectedSeats);
+        if (!seats.isSingleRow()) {
+            throw new IllegalArgumentException("A hold covers seats in one row");
+        }
+        int row = seats.getFirstRow();
+        long selection = seats.mask(row);
+        int epoch = occupancy.getEpoch();
+
+        // Claim and mark under the hold lock so a snapshot never reads the seats as sold in between
+        Lock holdLock = occupancy.getHoldLock();
+        holdLock.lock();
+        try {
+            BookingStatus status = claim(showing, row, selection);
+            if (status != BookingStatus.BOOKED) {
+                return new SeatHold(holdId, showingId, row, selection, epoch, status);
+            }
+
+            occupancy.markHeld(row, selection);
+            if (occupancy.getEpoch() != epoch) {
+                // The showing was reset while we claimed, don't leave seats behind on the new state
+                releaseHeldSeats(occupancy, row, selection);
+                return new SeatHold(holdId, showingId, row, selection, epoch, BookingStatus.CONFLICT);
+            }
+            return new SeatHold(holdId, showingId, row, selection, epoch, BookingStatus.HELD);
+        } finally {
+            holdLock.unlock();
+        }
+    }
+
+    /**
+     * Turns held seats into sold seats. Returns false if the hold no longer owns its seats.
+     */
+    public boolean confirmHold(SeatHold hold) {
+        SeatOccupancy occupancy = occupancy(hold.getShowingId());
+        if (occupancy.getEpoch() != hold.getEpoch()) {
+            return false;
+        }
+        if (occupancy.clearHeld(hold.getRow(), hold.getSeatMask()) != hold.getSeatMask()) {
+            return false;
+        }
+        journalTake(occupancy, hold.getShowingId(), hold.getRow(), hold.getSeatMask());
+        return true;
+    }
+
+    /**
+     * Frees the seats of a hold. Returns false if the hold no longer owned its seats.
+     */
+    public boolean releaseHold(SeatHold hold) {
+        SeatOccupancy occupancy = occupancy(hold.getShowingId());
+        if (occupancy.getEpoch() != hold.getEpoch()) {
+            return false;
+        }
+        return releaseHeldSeats(occupancy, hold.getRow(), hold.getSeatMask()) == hold.getSeatMask();
+    }
+
+    private static long releaseHeldSeats(SeatOccupancy occupancy, int row, long selection) {
+        Lock holdLock = occupancy.getHoldLock();
+        holdLock.lock();
+        try {
+            long owned = occupancy.clearHeld(row, selection);
+            if (owned != 0) {
+                occupancy.release(row, owned);
+            }
+            return owned;
+        } finally {
+            holdLock.unlock();
+        }
+    }
+
+    /**
+     * Journals sold seats, and gives them back if the journal can't take them so memory never
+     * holds a sale that a restart would lose
+     */
+    private void journalTake(SeatOccupancy occupancy, String showingId, int row, long seatMask) {
+        try {
+            journal.commit(journal.appendTake(showingId, row, seatMask));
+        } catch (UncheckedIOException e) {
+            occupancy.release(row, seatMask);
+            throw e;
+        }
+    }
+
+    /**
+     * Journals every row of a booked selection with one commit, and gives all of them back on failure
+     */
+    private void journalTake(SeatOccupancy occupancy, String showingId, SeatSelection selection) {
+        if (selection.isSingleRow()) {
+            journalTake(occupancy, showingId, selection.getFirstRow(), selection.mask(selection.getFirstRow()));
+            return;
+        }
+        int firstRow = selection.getFirstRow();
+        int lastRow = firstRow + selection.getRowCount() - 1;
+        try {
+            long sequence = 0L;
+            for (int row = firstRow; row <= lastRow; row++) {
+                sequence = journal.appendTake(showingId, row, selection.mask(row));
+            }
+            journal.commit(sequence);
+        } catch (UncheckedIOException e) {
+            release(occupancy, selection, lastRow + 1);
+            throw e;
+        }
+    }
+
+    /**
+     * Claims every row of the selection, or none of them
+     */
+    private BookingStatus claim(Showing showing, SeatSelection selection) {
+        SeatOccupancy occupancy = showing.getOccupancy();
+        int epoch = occupancy.getEpoch();
+        int firstRow = selection.getFirstRow();
+        for (int row = firstRow; row < firstRow + selection.getRowCount(); row++) {
+            BookingStatus status = claim(showing, row, selection.mask(row));
+            if (status != BookingStatus.BOOKED) {
+                // A reset in between already freed the claimed rows, don't free seats booked since
+                if (occupancy.getEpoch() == epoch) {
+                    release(occupancy, selection, row);
                 }
+                return status;
             }
         }
+        return BookingStatus.BOOKED;
     }
 
-    public boolean checkSeats(List<Seat> selectedSeats) {
+    /**
+     * Frees the rows of the selection before {@code endRow}
+     */
+    private static void release(SeatOccupancy occupancy, SeatSelection selection, int endRow) {
+        for (int row = selection.getFirstRow(); row < endRow; row++) {
+            occupancy.release(row, selection.mask(row));
+        }
+    }
+
+    private BookingStatus claim(Showing showing, int row, long selection) {
+        SeatOccupancy occupancy = showing.getOccupancy();
+        PlacementStrategy strategy = showing.getStrategy();
+
+        while (true) {
+            long taken = occupancy.takenMask(row);
 
-        // Check if this selection creates fragmentation
-        boolean createsFragmentation = doesSelectionCreateFragmentation(selectedSeats);
+            if ((taken & selection) != 0) {
+                return BookingStatus.CONFLICT;
+            }
+
+            long checked = System.nanoTime();
+            boolean allowed = strategy.allows(taken, selection, occupancy.fullMask(row), occupancy.getFreeRunLengths());
+            long checkNanos = System.nanoTime() - checked;
+            if (!allowed) {
+                metrics.recordCheck(false, checkNanos);
+                return BookingStatus.REJECTED;
+            }
 
-        if (!createsFragmentation) {
-            return true;
+            if (occupancy.compareAndSet(row, taken, taken | selection)) {
+                metrics.recordCheck(true, checkNanos);
+                return BookingStatus.BOOKED;
+            }
         }
+    }
 
-        // Selection creates fragmentation - check if better alternatives exist
-        int requestedCount = selectedSeats.size();
-        boolean hasAlternatives = hasValidAlternatives(requestedCount);
+    public List<Seat> findBestSeats(String showingId, int party, Integer preferredRow) {
+        return findBestSeats(showingId, party, preferredRow, false);
+    }
 
-        if (hasAlternatives) {
-            return false; // Better options exist, reject this selection
-        } else {
-            return true; // No better options, allow despite fragmentation
+    /**
+     * Suggests a block of {@code party} adjacent seats chosen by the showing's {@link PlacementStrategy},
+     * or an empty list if none fits. The preferred row defaults to the middle row. With {@code split},
+     * a party that fits in no single row may get a block stacked over adjacent rows, see {@link SplitRowPlacement}.
+     */
+    public List<Seat> findBestSeats(String showingId, int party, Integer preferredRow, boolean split) {
+        Showing showing = registry.getShowing(showingId);
+        SeatOccupancy occupancy = showing.getOccupancy();
+        int totalRows = occupancy.getTotalRows();
+        int largestParty = split ? SplitRowPlacement.MAX_ROWS * RowMasks.MAX_SEATS_PER_ROW : RowMasks.MAX_SEATS_PER_ROW;
+        if (party < 1 || party > largestParty) {
+            throw new IllegalArgumentException("Party size must be between 1 and " + largestParty);
+        }
+        int startRow = preferredRow == null ? (totalRows + 1) / 2 : preferredRow;
+        if (startRow < 1 || startRow > totalRows) {
+            throw new IllegalArgumentException("Row " + startRow + " does not exist");
         }
 
+        Placement placement = party > RowMasks.MAX_SEATS_PER_ROW ? null
+                : showing.getStrategy().place(occupancy, party, startRow, ThreadLocalRandom.current());
+        if (placement != null) {
+            return seatsInBlock(placement);
+        }
+        if (!split) {
+            return List.of();
+        }
+
+        List<Placement> block = SplitRowPlacement.place(occupancy, showing.getStrategy(), party, startRow);
+        if (block == null) {
+            return List.of();
+        }
+        List<Seat> seats = new ArrayList<>(party);
+        for (Placement rowPart : block) {
+            seats.addAll(seatsInBlock(rowPart));
+        }
+        return seats;
     }
 
-    private boolean doesSelectionCreateFragmentation(List<Seat> selectedSeats) {
-        // All seats are from same row
-        int row = selectedSeats.get(0).getRow();
+    /**
+     * Suggests the highest-scoring block of {@code party} adjacent seats, see {@link ScoredPlacement}.
+     * With categories every seat of the block has all of them, without any the block avoids reserved seats.
+     */
+    public List<Seat> findBestScoredSeats(String showingId, int party, Set<SeatCategory> categories) {
+        Showing showing = registry.getShowing(showingId);
+        if (party < 1 || party > RowMasks.MAX_SEATS_PER_ROW) {
+            throw new IllegalArgumentException("Party size must be between 1 and " + RowMasks.MAX_SEATS_PER_ROW);
+        }
+        SeatOccupancy occupancy = showing.getOccupancy();
+        Placement placement = ScoredPlacement.place(occupancy, showing.getLayout(), showing.getScores(),
+                showing.getStrategy(), party, categories == null ? Set.of() : categories);
+        return placement == null ? List.of() : seatsInBlock(placement);
+    }
 
-        // Get seat numbers
-        List<Integer> selectedSeatNumbers = new ArrayList<>();
-        for (Seat seat : selectedSeats) {
-            selectedSeatNumbers.add(seat.getSeat());
+    private static List<Seat> seatsInBlock(Placement placement) {
+        int size = Long.bitCount(placement.getSeatMask());
+        List<Seat> seats = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            seats.add(new Seat(placement.getFirstSeat() + i, placement.getRow(), false));
         }
+        return seats;
+    }
 
-        // Create simulation for this row
-        boolean[] rowState = new boolean[10]; // false = available, true = taken
-        List<Seat> rowSeats = seatMap.get(row);
+    /**
+     * Books many selections in one pass. Items are grouped by showing and row, each group is
+     * validated in arrival order against a local copy of the row word, with the same rules as
+     * {@link #checkSeats(String, List)}, and the whole group is published with a single CAS.
+     * Items spanning several rows are booked after the row groups, one by one.
+     * The whole batch shares one journal commit, and if that fails every item booked in it is given back
+     * before the failure is thrown. Results are returned in the same order as the items,
+     * every booked item with the id that cancels it, see {@link #cancelBooking(String, String)}.
+     */
+    public List<BatchOrderResult> bookBatch(List<BatchOrderItem> items) {
+        BatchOrderResult[] results = bookAll(items);
+        for (BatchOrderResult result : results) {
+            metrics.recordOrder(result.getStatus());
+        }
+        return List.of(results);
+    }
 
-        for (Seat seat : rowSeats) {
-            rowState[seat.getSeat() - 1] = seat.isTaken();
+    /**
+     * The batch booking without metrics, shared with the {@link BookingWriters} that drain their queues through it
+     */
+    BatchOrderResult[] bookAll(List<BatchOrderItem> items) {
+        BookingStatus[] statuses = new BookingStatus[items.size()];
+        Showing[] showings = new Showing[items.size()];
+        Booking[] bookings = new Booking[items.size()];
+        long[] selections = new long[items.size()];
+        Map<Showing, Map<Integer, List<Integer>>> groups = new LinkedHashMap<>();
+        Map<Integer, SeatSelection> multiRow = new LinkedHashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            BatchOrderItem item = items.get(i);
+            try {
+                Showing showing = registry.getShowing(item.getShowingId());
+                SeatSelection selection = SeatSelection.of(showing.getOccupancy(), item.getSeats());
+                if (!selection.isSingleRow()) {
+                    multiRow.put(i, selection);
+                    continue;
+                }
+                int row = selection.getFirstRow();
+                selections[i] = selection.mask(row);
+                groups.computeIfAbsent(showing, s -> new LinkedHashMap<>())
+                        .computeIfAbsent(row, r -> new ArrayList<>())
+                        .add(i);
+            } catch (IllegalArgumentException | ShowingNotFoundException e) {
+                statuses[i] = BookingStatus.INVALID;
+            }
         }
 
-        // Apply the selected seats to this row
-        for (int seatNum : selectedSeatNumbers) {
-            rowState[seatNum - 1] = true;
+        // The epoch is read before each claim, registering checks that no reset ran since
+        for (Map.Entry<Showing, Map<Integer, List<Integer>>> group : groups.entrySet()) {
+            Showing showing = group.getKey();
+            for (Map.Entry<Integer, List<Integer>> rowGroup : group.getValue().entrySet()) {
+                int row = rowGroup.getKey();
+                int epoch = showing.getOccupancy().getEpoch();
+                bookRowGroup(showing, row, rowGroup.getValue(), selections, statuses);
+                for (int index : rowGroup.getValue()) {
+                    if (statuses[index] == BookingStatus.BOOKED) {
+                        showings[index] = showing;
+                        bookings[index] = newBooking(row, new long[]{selections[index]}, epoch);
+                    }
+                }
+            }
         }
+        for (Map.Entry<Integer, SeatSelection> item : multiRow.entrySet()) {
+            Showing showing = registry.getShowing(items.get(item.getKey()).getShowingId());
+            SeatSelection selection = item.getValue();
+            int epoch = showing.getOccupancy().getEpoch();
+            statuses[item.getKey()] = claim(showing, selection);
+            if (statuses[item.getKey()] == BookingStatus.BOOKED) {
+                long[] seatMasks = new long[selection.getRowCount()];
+                for (int row = 0; row < seatMasks.length; row++) {
+                    seatMasks[row] = selection.mask(selection.getFirstRow() + row);
+                }
+                showings[item.getKey()] = showing;
+                bookings[item.getKey()] = newBooking(selection.getFirstRow(), seatMasks, epoch);
+            }
+        }
+        journalBookings(showings, bookings, statuses);
 
-        // Check for NEW isolated seats created by this selection
-        for (int seatNum : selectedSeatNumbers) {
-            int index = seatNum - 1;
+        BatchOrderResult[] results = new BatchOrderResult[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            results[i] = new BatchOrderResult(items.get(i).getShowingId(), statuses[i],
+                    bookings[i] == null ? null : bookings[i].getId());
+        }
+        return results;
+    }
 
-            // Check left neighbor
-            if (index > 0 && !rowState[index - 1]) {
-                boolean nextToLeftIsTaken = (index - 1 == 0) || rowState[index - 2];
-                if (nextToLeftIsTaken) {
-                    return true; // Creates isolated seat on the left
+    /**
+     * Registers and journals the bookings of a batch with one commit. A booking whose showing was reset
+     * since its claim is dropped as a conflict. If the journal can't take them, every booking is given back
+     * and forgotten before the failure is thrown, like {@link #journalTake}.
+     */
+    private void journalBookings(Showing[] showings, Booking[] bookings, BookingStatus[] statuses) {
+        boolean[] registered = new boolean[bookings.length];
+        try {
+            long sequence = 0L;
+            for (int i = 0; i < bookings.length; i++) {
+                Showing showing = showings[i];
+                Booking booking = bookings[i];
+                if (booking == null) {
+                    continue;
+                }
+                int index = i;
+                long appended = journal.appendBooking(showing.getId(), booking,
+                        () -> registered[index] = register(showing, booking));
+                if (appended < 0) {
+                    // The reset may have freed the seats before or after the claim, so nobody can tell
+                    // whose they are now. They are left taken rather than risk freeing a later sale.
+                    bookings[i] = null;
+                    statuses[i] = BookingStatus.CONFLICT;
+                } else {
+                    sequence = Math.max(sequence, appended);
                 }
             }
+            journal.commit(sequence);
+        } catch (UncheckedIOException e) {
+            for (int i = 0; i < bookings.length; i++) {
+                if (bookings[i] != null) {
+                    unregister(showings[i], bookings[i], registered[i]);
+                }
+            }
+            throw e;
+        }
+    }
+
+    private static Booking newBooking(int firstRow, long[] seatMasks, int epoch) {
+        return new Booking(UUID.randomUUID().toString(), firstRow, seatMasks, epoch);
+    }
+
+    /**
+     * Remembers booked seats under their id, unless the showing was reset since they were claimed.
+     * Runs under the journal monitor with the TAKE records, so a reset can't land between the check and
+     * the records, and a snapshot that covers the records also has the booking.
+     */
+    private static boolean register(Showing showing, Booking booking) {
+        if (showing.getOccupancy().getEpoch() != booking.getEpoch()) {
+            return false;
+        }
+        showing.getBookings().put(booking.getId(), booking);
+        return true;
+    }
+
+    /**
+     * Forgets a booking that never made it into the journal and frees its seats, unless it was already
+     * cancelled, or a reset has already freed them and they may have been sold again
+     */
+    private static void unregister(Showing showing, Booking booking, boolean registered) {
+        SeatOccupancy occupancy = showing.getOccupancy();
+        boolean owned = !registered || showing.getBookings().remove(booking.getId(), booking);
+        if (owned && booking.getEpoch() == occupancy.getEpoch()) {
+            for (int row = booking.getFirstRow(); row < booking.getFirstRow() + booking.getRowCount(); row++) {
+                occupancy.release(row, booking.mask(row));
+            }
+        }
+    }
+
+    /**
+     * Cancels a booking and frees exactly its seats. Each row is freed with a CAS that merges the seats
+     * back into the free runs around them, and only the rows of the booking are rescanned, so the free-run
+     * index, the change log and with it ETags and seat events all move on without rebuilding the showing.
+     * Returns false if the booking does not exist, was already cancelled or was wiped by a reset.
+     * The cancellation is in the journal before this returns.
+     */
+    public boolean cancelBooking(String showingId, String bookingId) {
+        Showing showing = registry.getShowing(showingId);
+        SeatOccupancy occupancy = showing.getOccupancy();
+        Booking booking = bookingId == null ? null : showing.getBookings().get(bookingId);
+        if (booking == null || booking.getEpoch() != occupancy.getEpoch()) {
+            return false;
+        }
 
-            // Check right neighbor
-            if (index < rowState.length - 1 && !rowState[index + 1]) {
-                boolean nextToRightIsTaken = (index + 1 == rowState.length - 1) || rowState[index + 2];
-                if (nextToRightIsTaken) {
-                    return true; // Creates isolated seat on the right
+        boolean[] released = new boolean[1];
+        long sequence = journal.appendRelease(showingId, booking, () -> {
+            // Removing the booking is what makes a cancellation win, a concurrent one finds it gone
+            if (booking.getEpoch() == occupancy.getEpoch() && showing.getBookings().remove(bookingId, booking)) {
+                for (int row = booking.getFirstRow(); row < booking.getFirstRow() + booking.getRowCount(); row++) {
+                    occupancy.release(row, booking.mask(row));
                 }
+                released[0] = true;
             }
+        });
+        if (released[0]) {
+            journal.commit(sequence);
+            metrics.recordCancellation();
         }
+        return released[0];
+    }
 
-        return false; // Does not create fragmentation
+    /**
+     * Throws the same exceptions as {@link #bookSeats(String, List)} would for a selection that can never be booked
+     */
+    public void validateSelection(String showingId, List<Seat> selectedSeats) {
+        SeatSelection.of(occupancy(showingId), selectedSeats);
     }
 
-    public boolean hasValidAlternatives(int requestedCount) {
-        // Check each row for contiguous groups of available seats
-        for (int row = 1; row <= 5; row++) {
-            List<Integer> contiguousGroups = findContiguousGroups(row);
+    BookingMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Books the group, setting the status of each of its items. Only the checks of the pass that
+     * lands are recorded, like a single claim.
+     */
+    private void bookRowGroup(Showing showing, int row, List<Integer> indexes,
+                              long[] selections, BookingStatus[] statuses) {
+        SeatOccupancy occupancy = showing.getOccupancy();
+        PlacementStrategy strategy = showing.getStrategy();
+        long full = occupancy.fullMask(row);
+        long[] checkNanos = new long[indexes.size()];
+
+        while (true) {
+            long taken = occupancy.takenMask(row);
+            long otherRunLengths = occupancy.freeRunLengthsWithout(row, taken);
+            long local = taken;
+
+            for (int i = 0; i < indexes.size(); i++) {
+                int index = indexes.get(i);
+                long selection = selections[index];
+
+                if ((local & selection) != 0) {
+                    statuses[index] = BookingStatus.CONFLICT;
+                    continue;
+                }
+                long checked = System.nanoTime();
+                boolean allowed = strategy.allows(local, selection, full, otherRunLengths | RowMasks.runLengths(~local & full));
+                checkNanos[i] = System.nanoTime() - checked;
+                if (allowed) {
+                    local |= selection;
+                    statuses[index] = BookingStatus.BOOKED;
+                } else {
+                    statuses[index] = BookingStatus.REJECTED;
+                }
+            }
 
-            for (int groupSize : contiguousGroups) {
-                if (groupSize == requestedCount || groupSize >= requestedCount + 2) {
-                    return true;
+            if (local == taken || occupancy.compareAndSet(row, taken, local)) {
+                for (int i = 0; i < indexes.size(); i++) {
+                    BookingStatus status = statuses[indexes.get(i)];
+                    if (status != BookingStatus.CONFLICT) {
+                        metrics.recordCheck(status == BookingStatus.BOOKED, checkNanos[i]);
+                    }
                 }
+                return;
             }
         }
+    }
 
-        return false; // Only found groups of requestedCount+1 or smaller - no better alternatives
+    public boolean hasValidAlternatives(int requestedCount) {
+        return hasValidAlternatives(occupancy(DEFAULT_SHOWING_ID), requestedCount);
     }
 
-    private List<Integer> findContiguousGroups(int row) {
-        List<Integer> groups = new ArrayList<>();
+    public boolean hasValidAlternatives(String showingId, int requestedCount) {
+        return hasValidAlternatives(occupancy(showingId), requestedCount);
+    }
 
-        boolean[] rowState = new boolean[10];
+    /**
+     * Whether a block of exactly requestedCount, or one leaving at least 2 seats, exists in the showing
+     */
+    private boolean hasValidAlternatives(SeatOccupancy occupancy, int requestedCount) {
+        return AntiFragmentationPlacement.hasBetterAlternative(occupancy.getFreeRunLengths(), requestedCount);
+    }
 
-        // Get current row state
-        for (Seat seat : seatMap.get(row)) {
-            rowState[seat.getSeat() - 1] = seat.isTaken();
+    private SeatOccupancy occupancy(String showingId) {
+        return registry.getShowing(showingId).getOccupancy();
+    }
+
+    /**
+     * Applies journal records straight to the registry, without journaling them again
+     */
+    private class JournalReplay implements BookingJournal.Handler {
+
+        @Override
+        public void layout(AuditoriumLayout layout) {
+            registry.registerLayout(layout);
         }
 
-        // Find all contiguous groups of available seats
-        int consecutiveCount = 0;
-        for (boolean taken : rowState) {
-            if (!taken) {
-                consecutiveCount++;
-            } else {
-                if (consecutiveCount > 0) {
-                    groups.add(consecutiveCount);
-                    consecutiveCount = 0;
-                }
+        @Override
+        public void showing(String showingId, String layoutId, String strategy) {
+            registry.createShowing(showingId, layoutId, PlacementStrategies.forName(strategy));
+        }
+
+        @Override
+        public void take(String showingId, int row, long seatMask, String bookingId) {
+            Showing showing = registry.getShowing(showingId);
+            showing.getOccupancy().take(row, seatMask);
+            if (bookingId != null) {
+                int epoch = showing.getOccupancy().getEpoch();
+                showing.getBookings().merge(bookingId, new Booking(bookingId, row, new long[]{seatMask}, epoch),
+                        (booking, part) -> booking.merge(row, seatMask));
             }
         }
 
-        // last group if row ends with available seats
-        if (consecutiveCount > 0) {
-            groups.add(consecutiveCount);
+        @Override
+        public void release(String showingId, String bookingId, int firstRow, long[] seatMasks) {
+            Showing showing = registry.getShowing(showingId);
+            showing.getBookings().remove(bookingId);
+            for (int row = 0; row < seatMasks.length; row++) {
+                showing.getOccupancy().release(firstRow + row, seatMasks[row]);
+            }
         }
 
-        return groups;
+        @Override
+        public void reset(String showingId) {
+            Showing showing = registry.getShowing(showingId);
+            showing.getOccupancy().clear();
+            showing.getBookings().clear();
+        }
+    }
+
+    private static long seatBit(SeatOccupancy occupancy, int row, int seatNumber) {
+        if (seatNumber < 1 || seatNumber > occupancy.getSeatsInRow(row)) {
+            throw new IllegalArgumentException("Seat " + seatNumber + " does not exist in row " + row);
+        }
+        return RowMasks.bit(seatNumber);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+package org.example.cinemaseatpicker.service;
+
+/**
+ * Read-only view of a venue's rows as seat masks, as seen by a {@link PlacementStrategy}.
+ * Rows and seats are 1-indexed, seat n is bit n - 1 and a set bit means taken.
+ */
+public interface SeatRows {
+
+    int getTotalRows();
+
+    int getSeatsInRow(int row);
+
+    /**
+     * Mask of every seat in the row, taken or not
+     */
+    long fullMask(int row);
+
+    /**
+     * Mask of the taken seats in the row
+     */
+    long takenMask(int row);
+
+    /**
+     * Bitmask of the free run lengths across all rows, bit n - 1 is set if a run of n free seats exists
+     */
+    long getFreeRunLengths();
+
+    /**
+     * Length of the longest free block in the row, 0 if the row is full
+     */
+    default int longestFreeRun(int row) {
+        long lengths = RowMasks.runLengths(~takenMask(row) & fullMask(row));
+        return Long.SIZE - Long.numberOfLeadingZeros(lengths);
+    }
+}
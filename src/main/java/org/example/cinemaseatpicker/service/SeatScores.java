@@ -0,0 +1,92 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+
+/**
+ * How good every seat of a layout is, kept as per-row prefix sums so any block is scored in O(1).
+ * <p>
+ * The centre-weighted model scores a seat by how close it is to the middle of its row plus how close its
+ * row is to the middle row. Within a row the scores rise towards the centre and fall after it, so the score
+ * of a block of n seats, as a function of where it starts, also rises to a peak and falls. The peak start
+ * for every n is precomputed, and the best block among any set of allowed starts is then either the last
+ * allowed start at or before the peak or the first one after it.
+ */
+public final class SeatScores {
+
+    // prefix[row - 1][k] = score of seats 1..k
+    private final int[][] prefix;
+    // peakStart[row - 1][n] = 0-indexed start of the best block of n seats in an empty row
+    private final int[][] peakStart;
+
+    private SeatScores(int[][] seatScores) {
+        this.prefix = new int[seatScores.length][];
+        this.peakStart = new int[seatScores.length][];
+        for (int row = 0; row < seatScores.length; row++) {
+            int seats = seatScores[row].length;
+            prefix[row] = new int[seats + 1];
+            for (int seat = 0; seat < seats; seat++) {
+                prefix[row][seat + 1] = prefix[row][seat] + seatScores[row][seat];
+            }
+            peakStart[row] = new int[seats + 1];
+            for (int size = 1; size <= seats; size++) {
+                int best = 0;
+                for (int start = 1; start + size <= seats; start++) {
+                    if (sum(row, start, size) > sum(row, best, size)) {
+                        best = start;
+                    }
+                }
+                peakStart[row][size] = best;
+            }
+        }
+    }
+
+    /**
+     * Centre seats of the middle rows score highest
+     */
+    public static SeatScores centreWeighted(AuditoriumLayout layout) {
+        int totalRows = layout.getTotalRows();
+        int[][] scores = new int[totalRows][];
+        for (int row = 1; row <= totalRows; row++) {
+            int seats = layout.getSeatsInRow(row);
+            int rowScore = totalRows - Math.abs(2 * row - (totalRows + 1));
+            scores[row - 1] = new int[seats];
+            for (int seat = 1; seat <= seats; seat++) {
+                scores[row - 1][seat - 1] = rowScore + seats - Math.abs(2 * seat - (seats + 1));
+            }
+        }
+        return new SeatScores(scores);
+    }
+
+    /**
+     * Score of the block of {@code size} seats starting at seat {@code firstSeat}
+     */
+    public int blockScore(int row, int firstSeat, int size) {
+        return sum(row - 1, firstSeat - 1, size);
+    }
+
+    /**
+     * The highest-scoring start among {@code starts} (bit i means the block may start at seat i + 1),
+     * as a 0-indexed start, or -1 if there are none
+     */
+    public int bestStart(int row, long starts, int size) {
+        if (starts == 0) {
+            return -1;
+        }
+        int peak = peakStart[row - 1][size];
+        long atOrBefore = starts & RowMasks.fullMask(peak + 1);
+        long after = starts & ~RowMasks.fullMask(peak + 1);
+        int left = atOrBefore == 0 ? -1 : 63 - Long.numberOfLeadingZeros(atOrBefore);
+        int right = after == 0 ? -1 : Long.numberOfTrailingZeros(after);
+        if (left < 0) {
+            return right;
+        }
+        if (right < 0 || sum(row - 1, left, size) >= sum(row - 1, right, size)) {
+            return left;
+        }
+        return right;
+    }
+
+    private int sum(int rowIndex, int start, int size) {
+        return prefix[rowIndex][start + size] - prefix[rowIndex][start];
+    }
+}
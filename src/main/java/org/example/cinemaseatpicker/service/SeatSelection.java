@@ -0,0 +1,94 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.Seat;
+
+import java.util.List;
+
+/**
+ * A buyer's seats as one mask per row. A selection is either one row, or a block split over adjacent rows
+ * where every row's seats are one run under the widest row's seats, like 3 seats in row 4 directly behind
+ * 3 in row 5.
+ */
+final class SeatSelection {
+
+    private final int firstRow;
+    private final long[] masks;
+
+    private SeatSelection(int firstRow, long[] masks) {
+        this.firstRow = firstRow;
+        this.masks = masks;
+    }
+
+    /**
+     * Validates the seats against the showing's rows
+     *
+     * @throws IllegalArgumentException if a seat doesn't exist or the rows aren't an aligned block
+     */
+    static SeatSelection of(SeatRows rows, List<Seat> selectedSeats) {
+        if (selectedSeats == null || selectedSeats.isEmpty()) {
+            throw new IllegalArgumentException("Select at least one seat");
+        }
+        int firstRow = Integer.MAX_VALUE;
+        int lastRow = Integer.MIN_VALUE;
+        for (Seat seat : selectedSeats) {
+            firstRow = Math.min(firstRow, seat.getRow());
+            lastRow = Math.max(lastRow, seat.getRow());
+        }
+        if (firstRow < 1 || lastRow > rows.getTotalRows()) {
+            throw new IllegalArgumentException("Row " + (firstRow < 1 ? firstRow : lastRow) + " does not exist");
+        }
+        if (lastRow - firstRow >= SplitRowPlacement.MAX_ROWS) {
+            throw new IllegalArgumentException("A selection can span at most " + SplitRowPlacement.MAX_ROWS + " rows");
+        }
+
+        long[] masks = new long[lastRow - firstRow + 1];
+        for (Seat seat : selectedSeats) {
+            int row = seat.getRow();
+            if (seat.getSeat() < 1 || seat.getSeat() > rows.getSeatsInRow(row)) {
+                throw new IllegalArgumentException("Seat " + seat.getSeat() + " does not exist in row " + row);
+            }
+            masks[row - firstRow] |= RowMasks.bit(seat.getSeat());
+        }
+        if (masks.length > 1) {
+            checkAligned(firstRow, masks);
+        }
+        return new SeatSelection(firstRow, masks);
+    }
+
+    private static void checkAligned(int firstRow, long[] masks) {
+        long widest = 0L;
+        for (long mask : masks) {
+            if (mask == 0L) {
+                throw new IllegalArgumentException("Seats in several rows must be in adjacent rows");
+            }
+            if (RowMasks.countRuns(mask, Long.bitCount(mask)) != 1) {
+                throw new IllegalArgumentException("Seats in each row must be next to each other");
+            }
+            if (Long.bitCount(mask) > Long.bitCount(widest)) {
+                widest = mask;
+            }
+        }
+        long span = RowMasks.range(Long.numberOfTrailingZeros(widest) + 1, Long.SIZE - Long.numberOfLeadingZeros(widest));
+        for (int i = 0; i < masks.length; i++) {
+            if ((masks[i] & ~span) != 0) {
+                throw new IllegalArgumentException("Seats in row " + (firstRow + i) + " are not lined up with the other rows");
+            }
+        }
+    }
+
+    int getFirstRow() {
+        return firstRow;
+    }
+
+    int getRowCount() {
+        return masks.length;
+    }
+
+    boolean isSingleRow() {
+        return masks.length == 1;
+    }
+
+    long mask(int row) {
+        return masks[row - firstRow];
+    }
+}
@@ -0,0 +1,33 @@
+package org.example.cinemaseatpicker.service;
+
+import lombok.Getter;
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A single screening of a film in an auditorium. Holds the per-showing occupancy, placement strategy
+ * and the bookings that can still be cancelled, the layout and its seat scores are shared with every
+ * other showing in the same hall.
+ */
+@Getter
+public class Showing {
+
+    private final String id;
+    private final SeatOccupancy occupancy;
+    private final PlacementStrategy strategy;
+    private final SeatScores scores;
+    private final Map<String, Booking> bookings = new ConcurrentHashMap<>();
+
+    Showing(String id, AuditoriumLayout layout, PlacementStrategy strategy, SeatScores scores) {
+        this.id = id;
+        this.occupancy = new SeatOccupancy(layout);
+        this.strategy = strategy;
+        this.scores = scores;
+    }
+
+    public AuditoriumLayout getLayout() {
+        return occupancy.getLayout();
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.cinemaseatpicker.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.NOT_FOUND)
+public class ShowingNotFoundException extends RuntimeException {
+
+    public ShowingNotFoundException(String message) {
+        super(message);
+    }
+}
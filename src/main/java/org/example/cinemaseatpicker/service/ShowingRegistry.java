@@ -0,0 +1,69 @@
+package org.example.cinemaseatpicker.service;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Layouts and showings keyed by id. A layout is registered once and referenced by
+ * every showing created from it, so a showing only costs its occupancy masks.
+ * The seat scores are computed once per layout and shared the same way.
+ */
+public class ShowingRegistry {
+
+    private final Map<String, AuditoriumLayout> layouts = new ConcurrentHashMap<>();
+    private final Map<String, Showing> showings = new ConcurrentHashMap<>();
+    // Keyed by the layout itself, a layout registered again under the same id gets its own scores
+    private final Map<AuditoriumLayout, SeatScores> scores = new ConcurrentHashMap<>();
+
+    public AuditoriumLayout registerLayout(AuditoriumLayout layout) {
+        AuditoriumLayout replaced = layouts.put(layout.getId(), layout);
+        if (replaced != null && replaced != layout) {
+            scores.remove(replaced);
+        }
+        return layout;
+    }
+
+    public AuditoriumLayout getLayout(String layoutId) {
+        AuditoriumLayout layout = layoutId == null ? null : layouts.get(layoutId);
+        if (layout == null) {
+            throw new ShowingNotFoundException("Layout " + layoutId + " does not exist");
+        }
+        return layout;
+    }
+
+    public Collection<AuditoriumLayout> getLayouts() {
+        return layouts.values();
+    }
+
+    public Showing createShowing(String showingId, String layoutId) {
+        return createShowing(showingId, layoutId, PlacementStrategies.DEFAULT);
+    }
+
+    public Showing createShowing(String showingId, String layoutId, PlacementStrategy strategy) {
+        if (showingId == null || showingId.isBlank()) {
+            throw new IllegalArgumentException("Showing id is required");
+        }
+        AuditoriumLayout layout = getLayout(layoutId);
+        Showing showing = new Showing(showingId, layout, strategy,
+                scores.computeIfAbsent(layout, SeatScores::centreWeighted));
+        if (showings.putIfAbsent(showingId, showing) != null) {
+            throw new IllegalArgumentException("Showing " + showingId + " already exists");
+        }
+        return showing;
+    }
+
+    public Showing getShowing(String showingId) {
+        Showing showing = showingId == null ? null : showings.get(showingId);
+        if (showing == null) {
+            throw new ShowingNotFoundException("Showing " + showingId + " does not exist");
+        }
+        return showing;
+    }
+
+    public Collection<Showing> getShowings() {
+        return showings.values();
+    }
+}
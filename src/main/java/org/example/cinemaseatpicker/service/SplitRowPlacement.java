@@ -0,0 +1,100 @@
+package org.example.cinemaseatpicker.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Places a group that fits in no single row as a block stacked over adjacent rows, every row starting at
+ * the same seat, like 3 seats in row 4 directly behind 3 in row 5. Fewer rows are always tried first,
+ * and an uneven group puts the shorter part in the last row.
+ * <p>
+ * The free seats of the rows are intersected, so a block is found with the same window search as a
+ * single row. Rows whose longest free block is too short are skipped using {@link SeatRows#longestFreeRun},
+ * which the occupancy answers from its per-row index, so nearly full venues are searched without
+ * scanning their rows.
+ */
+public final class SplitRowPlacement {
+
+    /**
+     * Most rows one group is spread over
+     */
+    public static final int MAX_ROWS = 4;
+
+    private SplitRowPlacement() {
+    }
+
+    /**
+     * One placement per row, front row first, or null if no stacked block fits.
+     * Blocks are searched outwards from {@code preferredRow} and must pass the strategy's {@link PlacementStrategy#allows}.
+     */
+    public static List<Placement> place(SeatRows rows, PlacementStrategy strategy, int groupSize, int preferredRow) {
+        int totalRows = rows.getTotalRows();
+        for (int rowCount = 2; rowCount <= Math.min(MAX_ROWS, totalRows); rowCount++) {
+            int width = (groupSize + rowCount - 1) / rowCount;
+            int lastWidth = groupSize - width * (rowCount - 1);
+            if (lastWidth < 1 || width > RowMasks.MAX_SEATS_PER_ROW) {
+                continue;
+            }
+
+            int lastFirstRow = totalRows - rowCount + 1;
+            int centreFirstRow = Math.min(Math.max(1, preferredRow - (rowCount - 1) / 2), lastFirstRow);
+            // centreFirstRow, centreFirstRow + 1, centreFirstRow - 1, ...
+            for (int step = 0; step < 2 * lastFirstRow; step++) {
+                int firstRow = centreFirstRow + ((step & 1) == 0 ? step / 2 : -(step + 1) / 2);
+                if (firstRow < 1 || firstRow > lastFirstRow) {
+                    continue;
+                }
+                List<Placement> block = placeBlock(rows, strategy, firstRow, rowCount, width, lastWidth);
+                if (block != null) {
+                    return block;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static List<Placement> placeBlock(SeatRows rows, PlacementStrategy strategy,
+                                              int firstRow, int rowCount, int width, int lastWidth) {
+        int narrowest = Integer.MAX_VALUE;
+        for (int i = 0; i < rowCount; i++) {
+            if (rows.longestFreeRun(firstRow + i) < widthOf(i, rowCount, width, lastWidth)) {
+                return null;
+            }
+            narrowest = Math.min(narrowest, rows.getSeatsInRow(firstRow + i));
+        }
+
+        long fitting = -1L;
+        long nonFragmenting = -1L;
+        for (int i = 0; i < rowCount; i++) {
+            int row = firstRow + i;
+            long free = ~rows.takenMask(row) & rows.fullMask(row);
+            int rowWidth = widthOf(i, rowCount, width, lastWidth);
+            fitting &= RowMasks.fittingStarts(free, rowWidth);
+            nonFragmenting &= RowMasks.nonFragmentingStarts(free, rowWidth);
+        }
+
+        int centreStart = Math.max(0, (narrowest - width) / 2);
+        int start = RowMasks.closestStart(nonFragmenting, centreStart);
+        if (start < 0) {
+            start = RowMasks.closestStart(fitting, centreStart);
+        }
+        if (start < 0) {
+            return null;
+        }
+
+        List<Placement> block = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            int row = firstRow + i;
+            long seats = RowMasks.range(start + 1, start + widthOf(i, rowCount, width, lastWidth));
+            if (!strategy.allows(rows.takenMask(row), seats, rows.fullMask(row), rows.getFreeRunLengths())) {
+                return null;
+            }
+            block.add(new Placement(row, seats));
+        }
+        return block;
+    }
+
+    private static int widthOf(int index, int rowCount, int width, int lastWidth) {
+        return index == rowCount - 1 ? lastWidth : width;
+    }
+}
@@ -0,0 +1,12 @@
+package org.example.cinemaseatpicker.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class WaitingRoomFullException extends RuntimeException {
+
+    public WaitingRoomFullException(String message) {
+        super(message);
+    }
+}
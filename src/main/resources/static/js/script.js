@@ -1,6 +1,79 @@
+const API_URL = "http://localhost:8080";
+const showingId = new URLSearchParams(window.location.search).get("showing") || "default";
+const showingUrl = `${API_URL}/showings/${encodeURIComponent(showingId)}`;
+
+// Version of the seat map currently shown, read from the seat map itself
+let mapVersion = 0;
+let seatEvents = null;
+
+function subscribeToSeatChanges() {
+    if (seatEvents) {
+        seatEvents.close();
+    }
+
+    seatEvents = new EventSource(`${showingUrl}/events?since=${mapVersion}`);
+    seatEvents.addEventListener("seats", event => {
+        const delta = JSON.parse(event.data);
+
+        // The map is already newer, e.g. a tick that repeats changes the catch-up or a reload already showed
+        if (delta.version <= mapVersion) {
+            return;
+        }
+
+        if (delta.full) {
+            loadSeats();
+            return;
+        }
+
+        // Only the seats other buyers changed, the rest of the map stays as it is
+        delta.seats.forEach(seat => {
+            const seatDiv = document.querySelector(`.seat[data-id="${seat.row}-${seat.seat}"]`);
+            if (!seatDiv) return;
+
+            seatDiv.classList.toggle("seat--taken", seat.taken);
+            if (seat.taken) {
+                seatDiv.classList.remove("seat--selected");
+            }
+        });
+        mapVersion = delta.version;
+    });
+}
+
+// Decodes the compact seat map: "SM", format, version, row count, seats per row, then one bitmap per row
+function decodeSeatMap(buffer) {
+    const view = new DataView(buffer);
+    if (view.getUint8(0) !== 0x53 || view.getUint8(1) !== 0x4d || view.getUint8(2) !== 1) {
+        throw new Error("Unknown seat map format");
+    }
+
+    const version = Number(view.getBigInt64(3));
+    const totalRows = view.getUint16(11);
+    let offset = 13 + totalRows;
+    const seats = [];
+    for (let row = 1; row <= totalRows; row++) {
+        const seatsInRow = view.getUint8(12 + row);
+        for (let seat = 1; seat <= seatsInRow; seat++) {
+            const taken = (view.getUint8(offset + ((seat - 1) >> 3)) & (1 << ((seat - 1) & 7))) !== 0;
+            seats.push({ row, seat, taken });
+        }
+        offset += (seatsInRow + 7) >> 3;
+    }
+    return { version, seats };
+}
+
 async function loadSeats() {
-    const response = await fetch("http://localhost:8080/seats");
-    const seats = await response.json();
+    // no-cache revalidates with the ETag, an unchanged map comes back as 304 and is served from cache
+    const response = await fetch(`${showingUrl}/seats`, {
+        cache: "no-cache",
+        headers: { Accept: "application/octet-stream" }
+    });
+    if (response.status === 429) {
+        // The showing is busy, the seat events keep the map current until a reload is let through
+        return;
+    }
+    const seatMap = decodeSeatMap(await response.arrayBuffer());
+    const seats = seatMap.seats;
+    mapVersion = seatMap.version;
 
     const theater = document.getElementById("theater");
     theater.innerHTML = "";
@@ -15,7 +88,8 @@ async function loadSeats() {
     });
 
     // Create rows
-    for (let rowNum = 1; rowNum <= 5; rowNum++) {
+    const totalRows = Math.max(0, ...seats.map(seat => seat.row));
+    for (let rowNum = 1; rowNum <= totalRows; rowNum++) {
         const rowDiv = document.createElement("div");
         rowDiv.className = "row";
 
@@ -42,16 +116,15 @@ async function loadSeats() {
             seatDiv.addEventListener("click", () => {
                 if (seatDiv.classList.contains("seat--taken")) return;
 
-                // Get all currently selected seats
-                const currentlySelected = document.querySelectorAll(".seat--selected");
-
-                // If seats are already selected, check if same row
-                if (currentlySelected.length > 0) {
-                    const firstSelectedRow = currentlySelected[0].dataset.id.split("-")[0];
-                    const clickedRow = seatDiv.dataset.id.split("-")[0];
+                // Seats may span several rows as long as the rows are adjacent, the server checks they line up
+                if (!seatDiv.classList.contains("seat--selected")) {
+                    const rows = [...document.querySelectorAll(".seat--selected")]
+                        .map(s => parseInt(s.dataset.id.split("-")[0]));
+                    rows.push(parseInt(seatDiv.dataset.id.split("-")[0]));
 
-                    if (firstSelectedRow !== clickedRow) {
-                        alert("Vælg venligst sæder fra samme række");
+                    const rowSpan = Math.max(...rows) - Math.min(...rows) + 1;
+                    if (new Set(rows).size !== rowSpan) {
+                        alert("Vælg venligst sæder fra samme række eller rækker lige bag hinanden");
                         return; // Block the selection
                     }
                 }
@@ -66,6 +139,8 @@ async function loadSeats() {
         rowDiv.appendChild(seatsDiv);
         theater.appendChild(rowDiv);
     }
+
+    subscribeToSeatChanges();
 }
 
 document.addEventListener("DOMContentLoaded", loadSeats);
@@ -75,7 +150,7 @@ document.getElementById("setupTestButton").addEventListener("click", async () =>
 
     if (!confirmed) return;
 
-    await fetch("http://localhost:8080/setup-test", {
+    await fetch(`${showingUrl}/setup-test`, {
         method: "POST"
     });
 
@@ -83,6 +158,34 @@ document.getElementById("setupTestButton").addEventListener("click", async () =>
     await loadSeats();
 });
 
+function orderSeats(selected, admissionToken) {
+    const headers = { "Content-Type": "application/json" };
+    if (admissionToken) {
+        headers["Admission-Token"] = admissionToken;
+    }
+    return fetch(`${showingUrl}/order`, {
+        method: "POST",
+        headers,
+        body: JSON.stringify(selected)
+    });
+}
+
+async function waitForAdmission(ticket) {
+    while (ticket.position > 0) {
+        console.log("Plads i venterummet:", ticket.position);
+        const wait = Math.max(1000, new Date(ticket.admittedAt).getTime() - Date.now());
+        await new Promise(resolve => setTimeout(resolve, Math.min(wait, 5000)));
+        const response = await fetch(`${showingUrl}/waiting-room`, {
+            headers: { "Admission-Token": ticket.ticket }
+        });
+        if (!response.ok) {
+            break;
+        }
+        ticket = await response.json();
+    }
+    return ticket.ticket;
+}
+
 document.getElementById("orderButton").addEventListener("click", async () => {
     const selected = [...document.querySelectorAll(".seat--selected")]
         .map(s => ({
@@ -97,21 +200,33 @@ document.getElementById("orderButton").addEventListener("click", async () => {
 
     console.log("Valgte sæder:", selected);
 
-    const response = await fetch("http://localhost:8080/order", {
-        method: "POST",
-        headers: { "Content-Type": "application/json" },
-        body: JSON.stringify(selected)
-    });
+    let response = await orderSeats(selected);
+    if (response.status === 429) {
+        // Too many orders for this showing, wait in the showing's waiting room and order again once admitted
+        const ticket = await waitForAdmission(await response.json());
+        response = await orderSeats(selected, ticket);
+    }
 
-    const isValid = await response.json();
-    console.log("Bestilling resultat:", isValid);
+    if (!response.ok) {
+        alert(await response.text());
+        return;
+    }
+
+    const result = await response.json();
+    console.log("Bestilling resultat:", result);
 
-    if (isValid) {
-        alert("Sæder bestilt!");
+    if (result.status === "BOOKED") {
+        alert(`Sæder bestilt! Bookingnummer: ${result.bookingId}`);
         // Reload seats to show the newly taken seats
         await loadSeats();
-    } else {
+    } else if (result.status === "CONFLICT") {
+        alert("Et eller flere af sæderne er lige blevet taget af en anden. Vælg venligst andre sæder.");
+        // Reload seats so the map shows who got there first
+        await loadSeats();
+    } else if (result.status === "REJECTED") {
         alert("Dit valg efterlader enkelte isolerede pladser. Vælg venligst andre sæder.");
+    } else {
+        alert("Sæderne kunne ikke bestilles. Vælg venligst andre sæder.");
     }
 });
 
@@ -120,7 +235,7 @@ document.getElementById("resetButton").addEventListener("click", async () => {
 
     if (!confirmed) return;
 
-    await fetch("http://localhost:8080/reset-seats", {
+    await fetch(`${showingUrl}/reset-seats`, {
         method: "GET"
     });
 
@@ -0,0 +1,201 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.model.WaitingRoomTicket;
+import org.example.cinemaseatpicker.service.AdmissionControl;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.example.cinemaseatpicker.service.WaitingRoomFullException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AdmissionControlTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+    private static final String OTHER_SHOWING = "other";
+    // 10 orders per second, so a slot is 100 ms
+    private static final long SLOT = Duration.ofMillis(100).toNanos();
+
+    private final AtomicLong clock = new AtomicLong(Duration.ofDays(1).toNanos());
+    private SeatPickerService service;
+    private AdmissionControl admission;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void initCinema() {
+        service = new SeatPickerService();
+        service.initSeats();
+        service.createShowing(OTHER_SHOWING, SeatPickerService.DEFAULT_LAYOUT_ID);
+        admission = admissionControl("secret");
+    }
+
+    private AdmissionControl admissionControl(String secret) {
+        return new AdmissionControl(service.getRegistry(), true, 10, 2, 10, 2, 3, Duration.ofSeconds(30), secret, clock::get);
+    }
+
+    // ==================== TEST CASES ====================
+
+    @Nested
+    @DisplayName("Order Gate And Waiting Room")
+    class WaitingRoomTests {
+
+        @Test
+        @DisplayName("Should admit the burst and queue later orders in arrival order")
+        void testBurstThenQueue() {
+            assertNull(admission.admitOrder(SHOWING, null));
+            assertNull(admission.admitOrder(SHOWING, null));
+
+            WaitingRoomTicket first = admission.admitOrder(SHOWING, null);
+            WaitingRoomTicket second = admission.admitOrder(SHOWING, null);
+            assertEquals(1, first.getPosition());
+            assertEquals(2, second.getPosition());
+            assertTrue(first.getAdmittedAt().isBefore(second.getAdmittedAt()));
+        }
+
+        @Test
+        @DisplayName("Should let a ticket in from its turn until it expires")
+        void testTicketAdmitsOnItsTurn() {
+            admission.admitOrder(SHOWING, null);
+            admission.admitOrder(SHOWING, null);
+            WaitingRoomTicket ticket = admission.admitOrder(SHOWING, null);
+
+            WaitingRoomTicket early = admission.admitOrder(SHOWING, ticket.getTicket());
+            assertEquals(ticket.getTicket(), early.getTicket());
+            assertEquals(1, admission.status(SHOWING, ticket.getTicket()).getPosition());
+
+            clock.addAndGet(SLOT);
+            assertEquals(0, admission.status(SHOWING, ticket.getTicket()).getPosition());
+            assertNull(admission.admitOrder(SHOWING, ticket.getTicket()));
+
+            clock.addAndGet(Duration.ofSeconds(30).toNanos());
+            assertThrows(IllegalArgumentException.class, () -> admission.status(SHOWING, ticket.getTicket()));
+        }
+
+        @Test
+        @DisplayName("Should let a ticket in only once")
+        void testTicketIsSingleUse() {
+            admission.admitOrder(SHOWING, null);
+            admission.admitOrder(SHOWING, null);
+            WaitingRoomTicket ticket = admission.admitOrder(SHOWING, null);
+            clock.addAndGet(SLOT);
+            assertNull(admission.admitOrder(SHOWING, ticket.getTicket()));
+            // The bucket is empty again, so the reused ticket has to queue like any other order
+            admission.admitOrder(SHOWING, null);
+
+            WaitingRoomTicket again = admission.admitOrder(SHOWING, ticket.getTicket());
+            assertNotNull(again);
+            assertNotEquals(ticket.getTicket(), again.getTicket());
+            assertEquals(2, again.getPosition());
+        }
+
+        @Test
+        @DisplayName("Should refuse a tampered ticket or one for another showing")
+        void testForgedTickets() {
+            admission.admitOrder(SHOWING, null);
+            admission.admitOrder(SHOWING, null);
+            String ticket = admission.admitOrder(SHOWING, null).getTicket();
+            clock.addAndGet(SLOT);
+
+            String tampered = ticket.substring(0, ticket.length() - 2) + (ticket.endsWith("A") ? "BB" : "AA");
+            assertThrows(IllegalArgumentException.class, () -> admission.status(SHOWING, tampered));
+            assertThrows(IllegalArgumentException.class, () -> admission.status(OTHER_SHOWING, ticket));
+            assertThrows(IllegalArgumentException.class, () -> admissionControl("another").status(SHOWING, ticket));
+        }
+
+        @Test
+        @DisplayName("Should refuse new orders once the waiting room is full")
+        void testWaitingRoomFull() {
+            admission.admitOrder(SHOWING, null);
+            admission.admitOrder(SHOWING, null);
+            for (int i = 0; i < 3; i++) {
+                assertNotNull(admission.admitOrder(SHOWING, null));
+            }
+
+            assertThrows(WaitingRoomFullException.class, () -> admission.admitOrder(SHOWING, null));
+        }
+
+        @Test
+        @DisplayName("Should keep other showings selling while one is queued")
+        void testShowingsAreIsolated() {
+            for (int i = 0; i < 5; i++) {
+                admission.admitOrder(SHOWING, null);
+            }
+
+            assertNull(admission.admitOrder(OTHER_SHOWING, null));
+            assertEquals(0, admission.admitRead(SHOWING));
+        }
+
+        @Test
+        @DisplayName("Should let unknown showings through to their 404")
+        void testUnknownShowing() {
+            for (int i = 0; i < 10; i++) {
+                assertNull(admission.admitOrder("missing", null));
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Read Gate")
+    class ReadTests {
+
+        @Test
+        @DisplayName("Should refuse reads over the limit until the bucket refills")
+        void testReadLimit() {
+            assertEquals(0, admission.admitRead(SHOWING));
+            assertEquals(0, admission.admitRead(SHOWING));
+            assertEquals(1, admission.admitRead(SHOWING));
+
+            clock.addAndGet(SLOT);
+            assertEquals(0, admission.admitRead(SHOWING));
+        }
+    }
+
+    @Nested
+    @SpringBootTest(properties = {
+            "cinema.admission.enabled=true",
+            "cinema.admission.orders-per-second=0.01",
+            "cinema.admission.order-burst=1"
+    })
+    @AutoConfigureMockMvc
+    @DisplayName("Admission Endpoints")
+    class EndpointTests {
+
+        @Autowired
+        MockMvc mockMvc;
+
+        @Test
+        @DisplayName("Should answer an order over the limit with 429 and a waiting room ticket")
+        void testOrderGetsTicket() throws Exception {
+            String order = "[{\"row\":1,\"seat\":1},{\"row\":1,\"seat\":2}]";
+            mockMvc.perform(post("/showings/default/holds").contentType(MediaType.APPLICATION_JSON).content(order))
+                    .andExpect(status().isOk());
+
+            String ticket = mockMvc.perform(post("/showings/default/order").contentType(MediaType.APPLICATION_JSON).content(order))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Retry-After"))
+                    .andExpect(jsonPath("$.position").value(1))
+                    .andReturn().getResponse().getContentAsString();
+
+            mockMvc.perform(get("/showings/default/waiting-room")
+                            .header("Admission-Token", ticket.replaceAll(".*\"ticket\":\"([^\"]+)\".*", "$1")))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.position").value(1));
+        }
+    }
+}
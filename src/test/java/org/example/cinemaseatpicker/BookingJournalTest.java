@@ -0,0 +1,425 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.BatchOrderItem;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.model.SeatCategory;
+import org.example.cinemaseatpicker.service.BestFitPlacement;
+import org.example.cinemaseatpicker.service.Booking;
+import org.example.cinemaseatpicker.service.NaivePlacement;
+import org.example.cinemaseatpicker.service.OccupancySnapshot;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.SeatHold;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.example.cinemaseatpicker.service.Showing;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+
+    @TempDir
+    Path dir;
+
+    private SeatPickerService service;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void openService() {
+        service = start();
+    }
+
+    @AfterEach
+    void closeService() throws IOException {
+        service.closeJournal();
+    }
+
+    private SeatPickerService start() {
+        SeatPickerService started = new SeatPickerService(dir.toString(), false, Duration.ZERO);
+        started.initSeats();
+        return started;
+    }
+
+    private SeatPickerService restart() throws IOException {
+        service.closeJournal();
+        service = start();
+        return service;
+    }
+
+    private List<Seat> createSelection(int row, int... seatNumbers) {
+        List<Seat> selection = new ArrayList<>();
+        for (int seatNum : seatNumbers) {
+            selection.add(new Seat(seatNum, row, false));
+        }
+        return selection;
+    }
+
+    /**
+     * Closes the journal under the service, so its next commit fails like a broken disk would
+     */
+    private void breakJournal() throws IOException {
+        service.closeJournal();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    private List<String> takenSeats(SeatPickerService seatPickerService, String showingId) {
+        return seatPickerService.getAllSeats(showingId).stream()
+                .filter(Seat::isTaken)
+                .map(seat -> seat.getRow() + "-" + seat.getSeat())
+                .toList();
+    }
+
+    // ==================== TESTS ====================
+
+    @Test
+    @DisplayName("Should rebuild sold seats after a restart")
+    void testReplay() throws IOException {
+        assertEquals(BookingStatus.BOOKED, service.bookSeats(SHOWING, createSelection(1, 1, 2)));
+        assertEquals(BookingStatus.BOOKED, service.bookSeats(SHOWING, createSelection(3, 5, 6)));
+
+        assertEquals(List.of("1-1", "1-2", "3-5", "3-6"), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should rebuild layouts, showings and batches")
+    void testReplayShowings() throws IOException {
+        service.registerLayout(new AuditoriumLayout("small", new int[]{4, 6}));
+        service.createShowing("matinee", "small");
+        service.bookBatch(List.of(
+                new BatchOrderItem("matinee", createSelection(2, 1, 2)),
+                new BatchOrderItem(SHOWING, createSelection(5, 9, 10))));
+
+        SeatPickerService restarted = restart();
+
+        assertEquals(List.of("2-1", "2-2"), takenSeats(restarted, "matinee"));
+        assertEquals(List.of("5-9", "5-10"), takenSeats(restarted, SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should replay resets in order")
+    void testReplayReset() throws IOException {
+        service.bookSeats(SHOWING, createSelection(1, 1, 2));
+        service.resetSeats(SHOWING);
+        service.bookSeats(SHOWING, createSelection(2, 3, 4));
+
+        assertEquals(List.of("2-3", "2-4"), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should replay bookings made while a reset runs after the reset")
+    void testResetDuringBookings() throws Exception {
+        service.registerLayout(AuditoriumLayout.uniform("big", 60, 10));
+        service.createShowing("premiere", "big");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<BookingStatus>> results = new ArrayList<>();
+        for (int row = 1; row <= 60; row++) {
+            int bookedRow = row;
+            results.add(executor.submit(() -> service.bookSeats("premiere", createSelection(bookedRow, 1, 2, 3, 4, 5))));
+        }
+        service.resetSeats("premiere");
+        for (Future<BookingStatus> result : results) {
+            assertEquals(BookingStatus.BOOKED, result.get());
+        }
+        executor.shutdown();
+
+        List<String> taken = takenSeats(service, "premiere");
+        assertEquals(taken, takenSeats(restart(), "premiere"));
+    }
+
+    @Test
+    @DisplayName("Should keep only bookings made after a reset that races a batch")
+    void testResetDuringBatch() throws Exception {
+        service.registerLayout(AuditoriumLayout.uniform("big", 60, 10));
+        service.createShowing("premiere", "big");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int row = 1; row <= 60; row++) {
+            int bookedRow = row;
+            results.add(executor.submit(() -> service.bookBatch(List.of(
+                    new BatchOrderItem("premiere", createSelection(bookedRow, 1, 2, 3, 4, 5))))));
+        }
+        service.resetSeats("premiere");
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        Showing showing = service.getRegistry().getShowing("premiere");
+        for (Booking booking : showing.getBookings().values()) {
+            assertEquals(showing.getOccupancy().getEpoch(), booking.getEpoch());
+        }
+        Set<String> bookingIds = Set.copyOf(showing.getBookings().keySet());
+        assertEquals(bookingIds, restart().getRegistry().getShowing("premiere").getBookings().keySet());
+    }
+
+    @Test
+    @DisplayName("Should only journal holds once they are confirmed")
+    void testHoldsAreNotJournaled() throws IOException {
+        SeatHold confirmed = service.holdSeats("a", SHOWING, createSelection(1, 1, 2));
+        service.holdSeats("b", SHOWING, createSelection(2, 1, 2));
+        assertTrue(service.confirmHold(confirmed));
+
+        assertEquals(List.of("1-1", "1-2"), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should drop a torn record at the end of the journal")
+    void testTornTail() throws IOException {
+        service.bookSeats(SHOWING, createSelection(1, 1, 2));
+        service.bookSeats(SHOWING, createSelection(2, 1, 2));
+        service.closeJournal();
+
+        // Cut the last record in half, like a crash in the middle of a write
+        Path journal = segments().get(0);
+        try (FileChannel channel = FileChannel.open(journal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+        long tornSize = Files.size(journal);
+
+        service = start();
+        assertEquals(List.of("1-1", "1-2"), takenSeats(service, SHOWING));
+        assertTrue(Files.size(journal) < tornSize);
+
+        // New records go after the last intact one
+        service.bookSeats(SHOWING, createSelection(4, 1, 2));
+        assertEquals(List.of("1-1", "1-2", "4-1", "4-2"), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should start from the snapshot and replay only the journal after it")
+    void testSnapshot() throws IOException {
+        service.registerLayout(new AuditoriumLayout("small", new int[]{4, 6}));
+        service.createShowing("matinee", "small");
+        service.bookSeats("matinee", createSelection(2, 1, 2));
+        service.bookSeats(SHOWING, createSelection(1, 1, 2));
+        service.snapshot();
+        service.bookSeats(SHOWING, createSelection(3, 9, 10));
+
+        assertTrue(Files.exists(dir.resolve(OccupancySnapshot.FILE_NAME)));
+        // The segment covered by the snapshot is gone, only the one written after it is left
+        assertEquals(1, segments().size());
+
+        SeatPickerService restarted = restart();
+        assertEquals(List.of("2-1", "2-2"), takenSeats(restarted, "matinee"));
+        assertEquals(List.of("1-1", "1-2", "3-9", "3-10"), takenSeats(restarted, SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should refuse a snapshot of another format")
+    void testSnapshotFormat() throws IOException {
+        service.snapshot();
+        service.closeJournal();
+
+        // Rewrite the format byte after the magic and keep the checksum valid, so only the format is wrong
+        Path snapshot = dir.resolve(OccupancySnapshot.FILE_NAME);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(snapshot));
+        bytes.put(4, (byte) (bytes.get(4) - 1));
+        CRC32 crc = new CRC32();
+        crc.update(bytes.array(), 0, bytes.limit() - 4);
+        bytes.putInt(bytes.limit() - 4, (int) crc.getValue());
+        Files.write(snapshot, bytes.array());
+
+        assertThrows(UncheckedIOException.class, this::start);
+        Files.delete(snapshot);
+        service = start();
+    }
+
+    @Test
+    @DisplayName("Should keep bookings and their cancellations in the journal and the snapshot")
+    void testCancellations() throws IOException {
+        String cancelled = service.bookBatch(List.of(new BatchOrderItem(SHOWING, createSelection(1, 1, 2)))).get(0).getBookingId();
+        String snapshotted = service.bookBatch(List.of(new BatchOrderItem(SHOWING, createSelection(2, 1, 2)))).get(0).getBookingId();
+        assertTrue(service.cancelBooking(SHOWING, cancelled));
+        service.snapshot();
+        String journaled = service.bookBatch(List.of(new BatchOrderItem(SHOWING, createSelection(3, 1, 2)))).get(0).getBookingId();
+
+        SeatPickerService restarted = restart();
+        assertEquals(List.of("2-1", "2-2", "3-1", "3-2"), takenSeats(restarted, SHOWING));
+        assertFalse(restarted.cancelBooking(SHOWING, cancelled));
+        assertTrue(restarted.cancelBooking(SHOWING, snapshotted));
+        assertTrue(restarted.cancelBooking(SHOWING, journaled));
+        assertEquals(List.of(), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should leave bookings from before a reset out of the snapshot")
+    void testSnapshotSkipsStaleBookings() throws IOException {
+        Showing showing = service.getRegistry().getShowing(SHOWING);
+        String staleId = service.bookBatch(List.of(new BatchOrderItem(SHOWING, createSelection(1, 1, 2)))).get(0).getBookingId();
+        Booking stale = showing.getBookings().get(staleId);
+        service.resetSeats(SHOWING);
+        // A booking left behind by the reset, like one registered while it ran
+        showing.getBookings().put(staleId, stale);
+        String liveId = service.bookBatch(List.of(new BatchOrderItem(SHOWING, createSelection(1, 1, 2)))).get(0).getBookingId();
+        int epoch = showing.getOccupancy().getEpoch();
+        service.snapshot();
+
+        SeatPickerService restarted = restart();
+        Showing restored = restarted.getRegistry().getShowing(SHOWING);
+        assertEquals(epoch, restored.getOccupancy().getEpoch());
+        assertEquals(Set.of(liveId), restored.getBookings().keySet());
+        assertEquals(epoch, restored.getBookings().get(liveId).getEpoch());
+        assertFalse(restarted.cancelBooking(SHOWING, staleId));
+        assertEquals(List.of("1-1", "1-2"), takenSeats(restarted, SHOWING));
+        assertTrue(restarted.cancelBooking(SHOWING, liveId));
+    }
+
+    @Test
+    @DisplayName("Should give back every seat of a batch the journal could not take")
+    void testFailedBatchIsGivenBack() throws IOException {
+        List<Seat> stacked = new ArrayList<>(createSelection(3, 4, 5));
+        stacked.addAll(createSelection(4, 4, 5));
+        breakJournal();
+
+        assertThrows(UncheckedIOException.class, () -> service.bookBatch(List.of(
+                new BatchOrderItem(SHOWING, createSelection(1, 1, 2)),
+                new BatchOrderItem(SHOWING, createSelection(1, 5, 6)),
+                new BatchOrderItem(SHOWING, stacked))));
+
+        assertEquals(List.of(), takenSeats(service, SHOWING));
+        assertTrue(service.getRegistry().getShowing(SHOWING).getBookings().isEmpty());
+        service = start();
+    }
+
+    @Test
+    @DisplayName("Should keep each showing's placement strategy in the journal and the snapshot")
+    void testStrategyIsKept() throws IOException {
+        service.createShowing("journaled", SeatPickerService.DEFAULT_LAYOUT_ID, BestFitPlacement.NAME);
+        service.snapshot();
+        service.createShowing("after-snapshot", SeatPickerService.DEFAULT_LAYOUT_ID, NaivePlacement.NAME);
+
+        SeatPickerService restarted = restart();
+
+        assertSame(PlacementStrategies.BEST_FIT, restarted.getRegistry().getShowing("journaled").getStrategy());
+        assertSame(PlacementStrategies.NAIVE, restarted.getRegistry().getShowing("after-snapshot").getStrategy());
+        assertSame(PlacementStrategies.DEFAULT, restarted.getRegistry().getShowing(SHOWING).getStrategy());
+    }
+
+    @Test
+    @DisplayName("Should keep seat categories in the journal and the snapshot")
+    void testCategoriesAreKept() throws IOException {
+        Map<SeatCategory, long[]> categories = Map.of(SeatCategory.WHEELCHAIR, new long[]{0L, RowMasks.range(1, 2)});
+        service.registerLayout(new AuditoriumLayout("journaled", new int[]{8, 8}, categories));
+        service.snapshot();
+        service.registerLayout(new AuditoriumLayout("after-snapshot", new int[]{6}, Map.of(SeatCategory.PREMIUM, new long[]{1L})));
+
+        SeatPickerService restarted = restart();
+
+        assertEquals(Map.of(SeatCategory.WHEELCHAIR, Map.of(2, List.of(1, 2))),
+                restarted.getRegistry().getLayout("journaled").getCategories());
+        assertEquals(Map.of(SeatCategory.PREMIUM, Map.of(1, List.of(1))),
+                restarted.getRegistry().getLayout("after-snapshot").getCategories());
+        assertEquals(Map.of(), restarted.getRegistry().getLayout(SeatPickerService.DEFAULT_LAYOUT_ID).getCategories());
+    }
+
+    @Test
+    @DisplayName("Should leave held seats out of the snapshot")
+    void testSnapshotSkipsHolds() throws IOException {
+        service.bookSeats(SHOWING, createSelection(1, 1, 2));
+        service.holdSeats("a", SHOWING, createSelection(2, 1, 2));
+        service.snapshot();
+
+        assertEquals(List.of("1-1", "1-2"), takenSeats(restart(), SHOWING));
+    }
+
+    @Test
+    @DisplayName("Should never write seats held while a snapshot is taken as sold")
+    void testSnapshotDuringHolds() throws Exception {
+        service.registerLayout(AuditoriumLayout.uniform("big", 60, 10));
+        service.createShowing("premiere", "big");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int row = 1; row <= 60; row++) {
+            int heldRow = row;
+            results.add(executor.submit(() -> service.releaseHold(
+                    service.holdSeats("hold-" + heldRow, "premiere", createSelection(heldRow, 1, 2, 3, 4, 5)))));
+        }
+        for (int i = 0; i < 5; i++) {
+            service.snapshot();
+        }
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(List.of(), takenSeats(restart(), "premiere"));
+    }
+
+    @Test
+    @DisplayName("Should keep every booking made while a snapshot is written")
+    void testSnapshotDuringBookings() throws Exception {
+        service.registerLayout(AuditoriumLayout.uniform("big", 60, 10));
+        service.createShowing("premiere", "big");
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<BookingStatus>> results = new ArrayList<>();
+        for (int row = 1; row <= 60; row++) {
+            int bookedRow = row;
+            results.add(executor.submit(() -> service.bookSeats("premiere", createSelection(bookedRow, 1, 2, 3, 4, 5))));
+        }
+        for (int i = 0; i < 5; i++) {
+            service.snapshot();
+        }
+        for (Future<BookingStatus> result : results) {
+            assertEquals(BookingStatus.BOOKED, result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(300, takenSeats(restart(), "premiere").size());
+    }
+
+    @Test
+    @DisplayName("Should journal every booking made concurrently")
+    void testConcurrentBookings() throws Exception {
+        service.registerLayout(AuditoriumLayout.uniform("big", 40, 10));
+        service.createShowing("premiere", "big");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<BookingStatus>> results = new ArrayList<>();
+        for (int row = 1; row <= 40; row++) {
+            int bookedRow = row;
+            results.add(executor.submit(() -> service.bookSeats("premiere", createSelection(bookedRow, 1, 2, 3, 4, 5))));
+        }
+        for (Future<BookingStatus> result : results) {
+            assertEquals(BookingStatus.BOOKED, result.get());
+        }
+        executor.shutdown();
+
+        assertEquals(200, takenSeats(restart(), "premiere").size());
+    }
+}
@@ -0,0 +1,163 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.BookingQueueFullException;
+import org.example.cinemaseatpicker.service.BookingWriters;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.example.cinemaseatpicker.service.ShowingNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingWritersTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+
+    private SeatPickerService service;
+    private BookingWriters writers;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void initCinema() {
+        service = new SeatPickerService();
+        service.initSeats();
+    }
+
+    @AfterEach
+    void stopWriters() throws InterruptedException {
+        if (writers != null) {
+            writers.stop();
+        }
+    }
+
+    private BookingWriters startWriters(int threads, int queueCapacity) {
+        writers = new BookingWriters(service, threads, queueCapacity);
+        writers.start();
+        return writers;
+    }
+
+    private List<Seat> createSelection(int row, int... seatNumbers) {
+        List<Seat> selection = new ArrayList<>();
+        for (int seatNum : seatNumbers) {
+            selection.add(new Seat(seatNum, row, false));
+        }
+        return selection;
+    }
+
+    private BookingStatus await(CompletableFuture<BatchOrderResult> result) throws Exception {
+        return result.get(5, TimeUnit.SECONDS).getStatus();
+    }
+
+    // ==================== TEST CASES ====================
+
+    @Test
+    @DisplayName("Should give the same answers as booking one order at a time")
+    void testSameRulesAsBookSeats() throws Exception {
+        startWriters(2, 64);
+
+        CompletableFuture<BatchOrderResult> first = writers.book(SHOWING, createSelection(1, 1, 2));
+        CompletableFuture<BatchOrderResult> overlapping = writers.book(SHOWING, createSelection(1, 2, 3));
+        CompletableFuture<BatchOrderResult> isolating = writers.book(SHOWING, createSelection(1, 4));
+
+        assertEquals(BookingStatus.BOOKED, await(first));
+        assertEquals(BookingStatus.CONFLICT, await(overlapping));
+        assertEquals(BookingStatus.REJECTED, await(isolating));
+        assertEquals(BookingStatus.CONFLICT, service.bookSeats(SHOWING, createSelection(1, 1)));
+    }
+
+    @Test
+    @DisplayName("Should refuse selections that can never be booked before queueing them")
+    void testInvalidSelectionFailsFast() {
+        startWriters(1, 64);
+
+        assertThrows(IllegalArgumentException.class, () -> writers.book(SHOWING, createSelection(1, 11)));
+        assertThrows(IllegalArgumentException.class, () -> writers.book(SHOWING, List.of()));
+        assertThrows(ShowingNotFoundException.class, () -> writers.book("missing", createSelection(1, 1)));
+    }
+
+    @Test
+    @DisplayName("Should never sell a seat twice when many threads race for one row")
+    void testConcurrentOrders() throws Exception {
+        startWriters(2, 1024);
+        List<CompletableFuture<BatchOrderResult>> results = new ArrayList<>();
+        List<Thread> buyers = new ArrayList<>();
+        for (int buyer = 0; buyer < 8; buyer++) {
+            Thread thread = new Thread(() -> {
+                for (int first = 1; first <= 9; first += 2) {
+                    CompletableFuture<BatchOrderResult> result = writers.book(SHOWING, createSelection(3, first, first + 1));
+                    synchronized (results) {
+                        results.add(result);
+                    }
+                }
+            });
+            buyers.add(thread);
+            thread.start();
+        }
+        for (Thread buyer : buyers) {
+            buyer.join();
+        }
+
+        int booked = 0;
+        for (CompletableFuture<BatchOrderResult> result : results) {
+            booked += await(result) == BookingStatus.BOOKED ? 1 : 0;
+        }
+        assertEquals(5, booked);
+        assertEquals(10, service.getAllSeats().stream().filter(seat -> seat.getRow() == 3 && seat.isTaken()).count());
+    }
+
+    @Test
+    @DisplayName("Should refuse orders once the queue is full and book the queued ones later")
+    void testBackpressure() throws Exception {
+        writers = new BookingWriters(service, 1, 4);
+        List<CompletableFuture<BatchOrderResult>> queued = new ArrayList<>();
+        for (int row = 1; row <= 4; row++) {
+            queued.add(writers.book(SHOWING, createSelection(row, 1, 2)));
+        }
+
+        assertThrows(BookingQueueFullException.class, () -> writers.book(SHOWING, createSelection(5, 1, 2)));
+        assertFalse(queued.get(0).isDone());
+
+        writers.start();
+        for (CompletableFuture<BatchOrderResult> result : queued) {
+            assertEquals(BookingStatus.BOOKED, await(result));
+        }
+        assertEquals(BookingStatus.BOOKED, await(writers.book(SHOWING, createSelection(5, 1, 2))));
+    }
+
+    @Test
+    @DisplayName("Should fail orders the journal could not take and give their seats back")
+    void testJournalFailure(@TempDir Path dir) throws Exception {
+        service = new SeatPickerService(dir.toString(), false, Duration.ZERO);
+        service.initSeats();
+        // A closed journal fails its next commit like a broken disk would
+        service.closeJournal();
+        startWriters(1, 64);
+        List<Seat> stacked = new ArrayList<>(createSelection(2, 4, 5));
+        stacked.addAll(createSelection(3, 4, 5));
+
+        CompletableFuture<BatchOrderResult> single = writers.book(SHOWING, createSelection(1, 1, 2));
+        CompletableFuture<BatchOrderResult> multiRow = writers.book(SHOWING, stacked);
+
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> await(single));
+        assertInstanceOf(UncheckedIOException.class, failure.getCause());
+        assertThrows(ExecutionException.class, () -> await(multiRow));
+        assertTrue(service.getAllSeats().stream().noneMatch(Seat::isTaken));
+        assertTrue(service.getRegistry().getShowing(SHOWING).getBookings().isEmpty());
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.HoldResponse;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.HashedTimingWheel;
+import org.example.cinemaseatpicker.service.HoldService;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HoldServiceTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+
+    private SeatPickerService service;
+    private HoldService holdService;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void initCinema() {
+        service = new SeatPickerService();
+        service.initSeats();
+        HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 64, "test-wheel");
+        holdService = new HoldService(service, wheel, Duration.ofMillis(100));
+    }
+
+    @AfterEach
+    void stopWheel() {
+        holdService.close();
+    }
+
+    private List<Seat> createSelection(int row, int... seatNumbers) {
+        List<Seat> selection = new ArrayList<>();
+        for (int seatNum : seatNumbers) {
+            selection.add(new Seat(seatNum, row, false));
+        }
+        return selection;
+    }
+
+    private boolean isTaken(int row, int seatNumber) {
+        return service.getAllSeats().stream()
+                .anyMatch(seat -> seat.getRow() == row && seat.getSeat() == seatNumber && seat.isTaken());
+    }
+
+    private void awaitFree(int row, int seatNumber) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (isTaken(row, seatNumber) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    // ==================== TEST CASES ====================
+
+    @Test
+    @DisplayName("Should take held seats away from other buyers")
+    void testHoldBlocksSeats() {
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 1, 2));
+
+        assertEquals(BookingStatus.HELD, hold.getStatus());
+        assertNotNull(hold.getHoldId());
+        assertEquals(BookingStatus.CONFLICT, service.bookSeats(SHOWING, createSelection(1, 2, 3)));
+    }
+
+    @Test
+    @DisplayName("Should keep seats sold after confirm")
+    void testConfirm() throws InterruptedException {
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 1, 2));
+
+        assertTrue(holdService.confirm(hold.getHoldId()));
+        Thread.sleep(200);
+        assertTrue(isTaken(1, 1));
+        assertFalse(holdService.release(hold.getHoldId()));
+    }
+
+    @Test
+    @DisplayName("Should free seats on release")
+    void testRelease() {
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 1, 2));
+
+        assertTrue(holdService.release(hold.getHoldId()));
+        assertFalse(isTaken(1, 1));
+        assertFalse(holdService.confirm(hold.getHoldId()));
+    }
+
+    @Test
+    @DisplayName("Should free seats and restore free runs when the hold expires")
+    void testExpiry() throws InterruptedException {
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 1, 2));
+
+        awaitFree(1, 1);
+        assertFalse(isTaken(1, 1));
+        assertFalse(holdService.confirm(hold.getHoldId()));
+        assertEquals(5, service.getRegistry().getShowing(SHOWING).getOccupancy().freeRunCount(10));
+    }
+
+    @Test
+    @DisplayName("Should free seats of a hold that expires before it is published")
+    void testExpiryBeforePublish() throws InterruptedException {
+        HashedTimingWheel wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 64, "expired-wheel");
+        HoldService expiring = new HoldService(service, wheel, Duration.ZERO);
+        try {
+            HoldResponse hold = expiring.hold(SHOWING, createSelection(1, 1, 2));
+
+            awaitFree(1, 1);
+            assertFalse(isTaken(1, 1));
+            assertFalse(expiring.confirm(hold.getHoldId()));
+            assertEquals(0, expiring.getOutstandingHolds());
+        } finally {
+            expiring.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Should not confirm a hold wiped by a reset")
+    void testResetInvalidatesHold() {
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 1, 2));
+        service.resetSeats();
+        service.bookSeats(SHOWING, createSelection(1, 1, 2));
+
+        assertFalse(holdService.release(hold.getHoldId()));
+        assertTrue(isTaken(1, 1));
+    }
+
+    @Test
+    @DisplayName("Should apply the fragmentation rule to holds")
+    void testHoldRejectsFragmentation() {
+        service.orderSeats(createSelection(1, 1, 5, 6, 7, 8, 9, 10));
+        HoldResponse hold = holdService.hold(SHOWING, createSelection(1, 3));
+
+        assertEquals(BookingStatus.REJECTED, hold.getStatus());
+        assertNull(hold.getHoldId());
+    }
+}
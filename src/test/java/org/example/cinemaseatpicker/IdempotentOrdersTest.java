@@ -0,0 +1,154 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.BookingWriters;
+import org.example.cinemaseatpicker.service.ExpiringLruCache;
+import org.example.cinemaseatpicker.service.IdempotencyKeyReusedException;
+import org.example.cinemaseatpicker.service.IdempotentOrders;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotentOrdersTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+
+    private final AtomicLong clock = new AtomicLong();
+    private SeatPickerService service;
+    private BookingWriters writers;
+    private IdempotentOrders orders;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void initCinema() {
+        service = new SeatPickerService();
+        service.initSeats();
+        writers = new BookingWriters(service, 1, 64);
+        writers.start();
+        orders = new IdempotentOrders(writers, service, new ExpiringLruCache<>(100, Duration.ofMinutes(1), clock::get));
+    }
+
+    @AfterEach
+    void stopWriters() throws InterruptedException {
+        writers.stop();
+    }
+
+    private List<Seat> createSelection(int row, int... seatNumbers) {
+        List<Seat> selection = new ArrayList<>();
+        for (int seatNum : seatNumbers) {
+            selection.add(new Seat(seatNum, row, false));
+        }
+        return selection;
+    }
+
+    private BatchOrderResult orderResult(String key, int row, int... seatNumbers) throws Exception {
+        return orders.book(key, SHOWING, createSelection(row, seatNumbers)).get(5, TimeUnit.SECONDS);
+    }
+
+    private BookingStatus order(String key, int row, int... seatNumbers) throws Exception {
+        return orderResult(key, row, seatNumbers).getStatus();
+    }
+
+    // ==================== TEST CASES ====================
+
+    @Nested
+    @DisplayName("Idempotent Orders")
+    class OrderTests {
+
+        @Test
+        @DisplayName("Should answer a retry with the first outcome instead of booking again")
+        void testRetryGetsFirstOutcome() throws Exception {
+            BatchOrderResult first = orderResult("a", 1, 1, 2);
+            BatchOrderResult retry = orderResult("a", 1, 2, 1);
+            assertEquals(BookingStatus.BOOKED, first.getStatus());
+            assertEquals(BookingStatus.BOOKED, retry.getStatus());
+            assertEquals(first.getBookingId(), retry.getBookingId());
+            // Without the key the same seats are now taken
+            assertEquals(BookingStatus.CONFLICT, order(null, 1, 1, 2));
+        }
+
+        @Test
+        @DisplayName("Should book again once the key has expired")
+        void testExpiredKey() throws Exception {
+            assertEquals(BookingStatus.BOOKED, order("a", 1, 1, 2));
+            clock.addAndGet(Duration.ofMinutes(2).toNanos());
+
+            assertEquals(BookingStatus.CONFLICT, order("a", 1, 1, 2));
+        }
+
+        @Test
+        @DisplayName("Should refuse a key reused for other seats")
+        void testKeyReused() throws Exception {
+            order("a", 1, 1, 2);
+
+            assertThrows(IdempotencyKeyReusedException.class, () -> orders.book("a", SHOWING, createSelection(2, 1, 2)));
+        }
+
+        @Test
+        @DisplayName("Should forget the key of an order refused before booking")
+        void testInvalidOrderIsNotRemembered() throws Exception {
+            assertThrows(IllegalArgumentException.class, () -> orders.book("a", SHOWING, createSelection(1, 11)));
+
+            assertEquals(BookingStatus.BOOKED, order("a", 1, 1, 2));
+        }
+    }
+
+    @Nested
+    @DisplayName("Expiring LRU Cache")
+    class CacheTests {
+
+        @Test
+        @DisplayName("Should evict the least recently used key when full")
+        void testLruEviction() {
+            ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(2, Duration.ofMinutes(1), clock::get);
+            cache.putIfAbsent("a", "1");
+            cache.putIfAbsent("b", "2");
+            cache.get("a");
+            cache.putIfAbsent("c", "3");
+
+            assertEquals("1", cache.get("a"));
+            assertNull(cache.get("b"));
+            assertEquals("3", cache.get("c"));
+            assertEquals(2, cache.size());
+        }
+
+        @Test
+        @DisplayName("Should keep the first value and drop it once expired")
+        void testExpiry() {
+            ExpiringLruCache<String, String> cache = new ExpiringLruCache<>(10, Duration.ofSeconds(10), clock::get);
+            assertNull(cache.putIfAbsent("a", "1"));
+            assertEquals("1", cache.putIfAbsent("a", "2"));
+
+            clock.addAndGet(Duration.ofSeconds(10).toNanos());
+            assertNull(cache.get("a"));
+            assertNull(cache.putIfAbsent("a", "3"));
+            assertEquals("3", cache.get("a"));
+        }
+
+        @Test
+        @DisplayName("Should stay within its bound under many keys")
+        void testBounded() {
+            ExpiringLruCache<Integer, Integer> cache = new ExpiringLruCache<>(1_000, Duration.ofMinutes(1), clock::get);
+            for (int key = 0; key < 50_000; key++) {
+                cache.putIfAbsent(key, key);
+            }
+
+            assertTrue(cache.size() <= 1_000);
+            assertEquals(49_999, cache.get(49_999));
+        }
+    }
+}
@@ -0,0 +1,452 @@
+package org.example.cinemaseatpicker;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.SeatMapCodec;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load generator for a running seat picker, plus a check that no seat was ever sold twice.
+ * <p>
+ * Buyers look at the seat map ({@code GET /seats} as a bitmap), pick a block of their party size that
+ * looked free and {@code POST /order} it, like the page does. The map they pick from is only as fresh as
+ * the last read, so with many buyers in flight and few rows to choose from ({@code hotRows}) most orders
+ * race for the same seats. A level ends after {@code orders} orders, or earlier once the buyers' map shows
+ * the hot rows sold out. Requests go out asynchronously through one {@link HttpClient} with at most
+ * {@code concurrency} in flight, so this is a closed loop: latencies are service times under that many
+ * concurrent buyers, and throughput is what the server sustains at that concurrency.
+ * <p>
+ * After the run the final seat map is reconciled against every accepted order. A seat in two accepted
+ * orders, an accepted seat that is free, or a taken seat nobody bought is a violation.
+ */
+public class LoadGenerator {
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // ==================== CONFIGURATION ====================
+
+    public static class Config {
+        private final int rows;
+        private final int seatsPerRow;
+        private final int hotRows;
+        private final Map<Integer, Double> groups;
+        private final int[] groupSizes;
+        private final double[] cumulativeWeights;
+        private final int orders;
+        private final double readsPerOrder;
+        private final int concurrency;
+        private final String strategy;
+        private final long seed;
+
+        /**
+         * @param hotRows       orders only go to the first {@code hotRows} rows, fewer rows means more contention
+         * @param groups        party size to relative weight, e.g. {@code {2: 40, 3: 30}}
+         * @param readsPerOrder chance of a seat map read before each order
+         * @param strategy      placement strategy of the showing, null for the default
+         */
+        public Config(int rows, int seatsPerRow, int hotRows, Map<Integer, Double> groups, int orders,
+                      double readsPerOrder, int concurrency, String strategy, long seed) {
+            if (seatsPerRow < 1 || seatsPerRow > RowMasks.MAX_SEATS_PER_ROW) {
+                throw new IllegalArgumentException("Rows must have 1 to " + RowMasks.MAX_SEATS_PER_ROW + " seats");
+            }
+            if (rows < 1 || hotRows < 1 || hotRows > rows || groups.isEmpty() || orders < 1 || concurrency < 1) {
+                throw new IllegalArgumentException("Need rows, hot rows within them, a group size, orders and concurrency");
+            }
+            this.rows = rows;
+            this.seatsPerRow = seatsPerRow;
+            this.hotRows = hotRows;
+            this.groups = Map.copyOf(groups);
+            this.groupSizes = groups.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            this.cumulativeWeights = new double[groupSizes.length];
+            double total = 0;
+            for (int i = 0; i < groupSizes.length; i++) {
+                total += groups.get(groupSizes[i]);
+                cumulativeWeights[i] = total;
+            }
+            this.orders = orders;
+            this.readsPerOrder = readsPerOrder;
+            this.concurrency = concurrency;
+            this.strategy = strategy;
+            this.seed = seed;
+        }
+
+        public Config withConcurrency(int concurrency) {
+            return new Config(rows, seatsPerRow, hotRows, groups, orders, readsPerOrder, concurrency, strategy, seed);
+        }
+
+        int drawGroupSize(SplittableRandom random) {
+            double pick = random.nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (pick < cumulativeWeights[i]) {
+                    return groupSizes[i];
+                }
+            }
+            return groupSizes[groupSizes.length - 1];
+        }
+    }
+
+    // ==================== RESULTS ====================
+
+    public static class LoadResult {
+        private final int concurrency;
+        private final int accepted;
+        private final int refused;
+        private final int errors;
+        private final double seconds;
+        private final long[] orderNanos;
+        private final long[] readNanos;
+        private final List<String> violations;
+
+        LoadResult(int concurrency, int accepted, int refused, int errors, double seconds,
+                   long[] orderNanos, long[] readNanos, List<String> violations) {
+            this.concurrency = concurrency;
+            this.accepted = accepted;
+            this.refused = refused;
+            this.errors = errors;
+            this.seconds = seconds;
+            this.orderNanos = orderNanos;
+            this.readNanos = readNanos;
+            this.violations = violations;
+            Arrays.sort(this.orderNanos);
+            Arrays.sort(this.readNanos);
+        }
+
+        public int getAccepted() { return accepted; }
+        public int getRefused() { return refused; }
+        public int getErrors() { return errors; }
+        public List<String> getViolations() { return violations; }
+
+        public double getOrdersPerSecond() {
+            return orderNanos.length / seconds;
+        }
+
+        /**
+         * Order latency in milliseconds at the given quantile, e.g. 0.99
+         */
+        public double orderLatency(double quantile) {
+            return percentile(orderNanos, quantile);
+        }
+
+        public double readLatency(double quantile) {
+            return percentile(readNanos, quantile);
+        }
+
+        private static double percentile(long[] sorted, double quantile) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int index = (int) Math.ceil(quantile * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    // ==================== ENGINE ====================
+
+    /**
+     * Runs one load level against a fresh showing on the server at {@code baseUri}
+     */
+    public LoadResult run(URI baseUri, Config config) throws IOException, InterruptedException {
+        String showingId = "load-" + Long.toString(System.nanoTime(), 36);
+        int[] seatsPerRow = new int[config.rows];
+        Arrays.fill(seatsPerRow, config.seatsPerRow);
+        send(post(baseUri.resolve("/layouts"), objectMapper.writeValueAsString(
+                Map.of("layoutId", showingId, "seatsPerRow", seatsPerRow))));
+        Map<String, String> showing = new HashMap<>(Map.of("showingId", showingId, "layoutId", showingId));
+        if (config.strategy != null) {
+            showing.put("strategy", config.strategy);
+        }
+        send(post(baseUri.resolve("/showings"), objectMapper.writeValueAsString(showing)));
+
+        URI seatsUri = baseUri.resolve("/showings/" + showingId + "/seats");
+        URI orderUri = baseUri.resolve("/showings/" + showingId + "/order");
+        HttpRequest read = HttpRequest.newBuilder(seatsUri).header("Accept", SeatMapCodec.MEDIA_TYPE).GET().build();
+
+        // The map buyers pick from, replaced by every read
+        long[][] knownTaken = {new long[config.rows]};
+        Semaphore inFlight = new Semaphore(config.concurrency);
+        long[] orderNanos = new long[config.orders];
+        long[] readNanos = new long[config.orders];
+        AtomicInteger reads = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ConcurrentLinkedQueue<List<Seat>> accepted = new ConcurrentLinkedQueue<>();
+        SplittableRandom random = new SplittableRandom(config.seed);
+
+        long started = System.nanoTime();
+        int sentOrders = 0;
+        for (int i = 0; i < config.orders; i++) {
+            if (random.nextDouble() < config.readsPerOrder) {
+                inFlight.acquire();
+                long sent = System.nanoTime();
+                client.sendAsync(read, HttpResponse.BodyHandlers.ofByteArray()).whenComplete((response, failure) -> {
+                    readNanos[reads.getAndIncrement()] = System.nanoTime() - sent;
+                    if (failure != null || response.statusCode() != 200) {
+                        errors.incrementAndGet();
+                    } else {
+                        long[] taken = decodeTaken(response.body());
+                        synchronized (knownTaken) {
+                            knownTaken[0] = taken;
+                        }
+                    }
+                    inFlight.release();
+                });
+            }
+
+            long[] taken;
+            synchronized (knownTaken) {
+                taken = knownTaken[0];
+            }
+            if (soldOut(config, taken)) {
+                break;
+            }
+            List<Seat> selection = pickSeats(config, taken, random);
+            if (selection == null) {
+                continue;
+            }
+            HttpRequest order = post(orderUri, objectMapper.writeValueAsString(selection));
+            int index = sentOrders++;
+            inFlight.acquire();
+            long sent = System.nanoTime();
+            client.sendAsync(order, HttpResponse.BodyHandlers.ofString()).whenComplete((response, failure) -> {
+                orderNanos[index] = System.nanoTime() - sent;
+                if (failure != null || response.statusCode() != 200) {
+                    errors.incrementAndGet();
+                } else {
+                    BookingStatus status = status(response.body());
+                    if (status == BookingStatus.BOOKED) {
+                        accepted.add(selection);
+                    } else if (status == null) {
+                        errors.incrementAndGet();
+                    } else {
+                        refused.incrementAndGet();
+                    }
+                }
+                inFlight.release();
+            });
+        }
+        // Every permit back means every request has completed
+        inFlight.acquire(config.concurrency);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        List<List<Seat>> acceptedOrders = new ArrayList<>(accepted);
+        HttpResponse<String> finalMap = send(HttpRequest.newBuilder(seatsUri).header("Accept", "application/json").GET().build());
+        List<String> violations = verify(acceptedOrders, objectMapper.readValue(finalMap.body(), new TypeReference<List<Seat>>() {
+        }));
+        return new LoadResult(config.concurrency, acceptedOrders.size(), refused.get(), errors.get(), seconds,
+                Arrays.copyOf(orderNanos, sentOrders), Arrays.copyOf(readNanos, reads.get()), violations);
+    }
+
+    /**
+     * The status of an order response, or null if it can't be read
+     */
+    private BookingStatus status(String orderResponse) {
+        try {
+            return objectMapper.readValue(orderResponse, BatchOrderResult.class).getStatus();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Whether the buyer's map shows every hot row full, which ends the sale
+     */
+    private static boolean soldOut(Config config, long[] taken) {
+        long full = RowMasks.fullMask(config.seatsPerRow);
+        for (int row = 0; row < config.hotRows; row++) {
+            if (taken[row] != full) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A block of the party size that was free in the buyer's map, in the first hot row with one counting
+     * from a random row. Null if no hot row seemed to have room, then the buyer gives up.
+     */
+    private static List<Seat> pickSeats(Config config, long[] taken, SplittableRandom random) {
+        int party = Math.min(config.drawGroupSize(random), config.seatsPerRow);
+        int startRow = random.nextInt(config.hotRows);
+        long starts = 0L;
+        int row = 0;
+        for (int i = 0; i < config.hotRows && starts == 0; i++) {
+            row = 1 + (startRow + i) % config.hotRows;
+            starts = RowMasks.fittingStarts(~taken[row - 1] & RowMasks.fullMask(config.seatsPerRow), party);
+        }
+        if (starts == 0) {
+            return null;
+        }
+        for (int skip = random.nextInt(Long.bitCount(starts)); skip > 0; skip--) {
+            starts &= starts - 1;
+        }
+        int first = Long.numberOfTrailingZeros(starts) + 1;
+
+        List<Seat> seats = new ArrayList<>(party);
+        for (int seat = first; seat < first + party; seat++) {
+            seats.add(new Seat(seat, row, false));
+        }
+        return seats;
+    }
+
+    /**
+     * Taken masks per row from the {@link SeatMapCodec} bitmap
+     */
+    static long[] decodeTaken(byte[] body) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        buffer.position(2 + 1 + 8);
+        int rows = buffer.getShort();
+        int[] seats = new int[rows];
+        for (int row = 0; row < rows; row++) {
+            seats[row] = Byte.toUnsignedInt(buffer.get());
+        }
+        long[] taken = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            for (int i = 0; i < (seats[row] + 7) / 8; i++) {
+                taken[row] |= (long) Byte.toUnsignedInt(buffer.get()) << (8 * i);
+            }
+        }
+        return taken;
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException(request.uri() + " answered " + response.statusCode() + ": " + response.body());
+        }
+        return response;
+    }
+
+    private static HttpRequest post(URI uri, String json) {
+        return HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    // ==================== VERIFICATION ====================
+
+    /**
+     * Every seat of every accepted order must be taken in the final map and belong to that order alone,
+     * and every taken seat must belong to an accepted order. Returns the violations, empty if none.
+     */
+    static List<String> verify(List<List<Seat>> acceptedOrders, List<Seat> finalMap) {
+        List<String> violations = new ArrayList<>();
+        Map<String, Integer> soldTo = new HashMap<>();
+        for (int order = 0; order < acceptedOrders.size(); order++) {
+            for (Seat seat : acceptedOrders.get(order)) {
+                Integer earlier = soldTo.putIfAbsent(key(seat), order);
+                if (earlier != null) {
+                    violations.add("Seat " + key(seat) + " was sold to orders " + earlier + " and " + order);
+                }
+            }
+        }
+
+        for (Seat seat : finalMap) {
+            boolean sold = soldTo.containsKey(key(seat));
+            if (sold && !seat.isTaken()) {
+                violations.add("Seat " + key(seat) + " was sold but is free");
+            } else if (!sold && seat.isTaken()) {
+                violations.add("Seat " + key(seat) + " is taken but was never sold");
+            }
+        }
+        return violations;
+    }
+
+    private static String key(Seat seat) {
+        return seat.getRow() + "-" + seat.getSeat();
+    }
+
+    // ==================== COMMAND LINE ====================
+
+    /**
+     * Options, all optional: {@code --url=http://localhost:8080} (an embedded server is started if missing),
+     * {@code --rows=500 --seats=40 --hot-rows=500}, {@code --groups=1:20,2:40,3:25,4:15}, {@code --orders=20000},
+     * {@code --reads=0.5}, {@code --concurrency=1,8,32,128}, {@code --strategy=naive}, {@code --seed=42}
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
+        }
+
+        Map<Integer, Double> groups = new TreeMap<>();
+        for (String group : options.getOrDefault("groups", "1:20,2:40,3:25,4:15").split(",")) {
+            String[] sizeAndWeight = group.split(":");
+            groups.put(Integer.parseInt(sizeAndWeight[0]), Double.parseDouble(sizeAndWeight[1]));
+        }
+        int rows = Integer.parseInt(options.getOrDefault("rows", "500"));
+        Config config = new Config(rows,
+                Integer.parseInt(options.getOrDefault("seats", "40")),
+                Integer.parseInt(options.getOrDefault("hot-rows", Integer.toString(rows))),
+                groups,
+                Integer.parseInt(options.getOrDefault("orders", "20000")),
+                Double.parseDouble(options.getOrDefault("reads", "0.5")),
+                1,
+                options.get("strategy"),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        int[] levels = Arrays.stream(options.getOrDefault("concurrency", "1,8,32,128").split(","))
+                .mapToInt(Integer::parseInt).toArray();
+
+        ConfigurableApplicationContext context = null;
+        URI baseUri;
+        if (options.containsKey("url")) {
+            baseUri = URI.create(options.get("url"));
+        } else {
+            context = SpringApplication.run(CinemaSeatPickerApplication.class, "--server.port=0", "--logging.level.root=WARN");
+            baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+        }
+
+        try {
+            LoadGenerator generator = new LoadGenerator();
+            System.out.println("=".repeat(100));
+            System.out.println("CINEMA SEAT PICKER LOAD TEST");
+            System.out.println("=".repeat(100));
+            System.out.printf("Target: %s, %d x %d seats, %d hot rows, groups %s%n", baseUri, rows, config.seatsPerRow,
+                    config.hotRows, groups);
+            System.out.printf("Up to %,d orders per level, %.2f reads per order%n", config.orders, config.readsPerOrder);
+            System.out.println();
+            System.out.printf("%11s %10s %9s %9s %7s %9s %9s %9s %11s %11s%n", "Concurrency", "Orders/s", "Accepted",
+                    "Refused", "Errors", "p50 ms", "p99 ms", "p999 ms", "Read p99 ms", "Violations");
+            boolean clean = true;
+            for (int level : levels) {
+                LoadResult result = generator.run(baseUri, config.withConcurrency(level));
+                System.out.printf("%11d %10.0f %9d %9d %7d %9.2f %9.2f %9.2f %11.2f %11d%n", result.concurrency,
+                        result.getOrdersPerSecond(), result.accepted, result.refused, result.errors,
+                        result.orderLatency(0.50), result.orderLatency(0.99), result.orderLatency(0.999),
+                        result.readLatency(0.99), result.violations.size());
+                result.violations.stream().limit(10).forEach(violation -> System.out.println("  " + violation));
+                clean &= result.violations.isEmpty();
+            }
+            System.out.println();
+            System.out.println(clean ? "No seat was sold twice." : "DOUBLE BOOKING DETECTED");
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+}
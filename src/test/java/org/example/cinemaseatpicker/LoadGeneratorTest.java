@@ -0,0 +1,68 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.LoadGenerator.Config;
+import org.example.cinemaseatpicker.LoadGenerator.LoadResult;
+import org.example.cinemaseatpicker.model.Seat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class LoadGeneratorTest {
+
+    @LocalServerPort
+    private int port;
+
+    private final LoadGenerator generator = new LoadGenerator();
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    private URI baseUri() {
+        return URI.create("http://localhost:" + port);
+    }
+
+    private List<Seat> seats(int row, int... seats) {
+        return Arrays.stream(seats).mapToObj(seat -> new Seat(seat, row, true)).toList();
+    }
+
+    // ==================== TESTS ====================
+
+    @Test
+    @DisplayName("Should never sell a seat twice when many buyers race for two rows")
+    void testContendedLoad() throws Exception {
+        Config config = new Config(10, 20, 2, Map.of(1, 20.0, 2, 40.0, 3, 25.0, 4, 15.0), 1_000, 0.5, 32, "naive", 7);
+
+        LoadResult result = generator.run(baseUri(), config);
+
+        assertEquals(0, result.getErrors());
+        assertTrue(result.getAccepted() > 0);
+        // Two rows of 20 seats can't take every order, so buyers really did collide
+        assertTrue(result.getRefused() > 0);
+        assertEquals(List.of(), result.getViolations());
+        assertTrue(result.orderLatency(0.5) <= result.orderLatency(0.99));
+    }
+
+    @Test
+    @DisplayName("Should report seats sold twice, sold but free, and taken but never sold")
+    void testVerifierFindsViolations() {
+        List<List<Seat>> accepted = List.of(seats(1, 1, 2), seats(1, 2, 3), seats(2, 1));
+        List<Seat> finalMap = List.of(
+                new Seat(1, 1, true), new Seat(2, 1, true), new Seat(3, 1, true),
+                new Seat(1, 2, false), new Seat(2, 2, true));
+
+        List<String> violations = LoadGenerator.verify(accepted, finalMap);
+
+        assertEquals(List.of(
+                "Seat 1-2 was sold to orders 0 and 1",
+                "Seat 2-1 was sold but is free",
+                "Seat 2-2 is taken but was never sold"), violations);
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.service.RowMasks;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Offline optimum for a sequence of groups: the most seats that can be sold, and among those allocations
+ * the fewest isolated seats. It knows every group up front and may turn any group away, so it is the
+ * bound the online placement strategies are measured against, not something the service could do.
+ * <p>
+ * Where a group sits inside a row doesn't matter offline: the free seats of a row can always be pushed
+ * together, so a row only has an isolated seat when exactly one seat is left. That reduces the problem to
+ * choosing how many groups of each size go in each row. The solver walks the rows and memoizes on the row
+ * and the number of groups of each size still unseated, so groups of the same size are never told apart.
+ */
+public final class OptimalAllocator {
+
+    private final int[] seatsPerRow;
+
+    public OptimalAllocator(int[] seatsPerRow) {
+        for (int seats : seatsPerRow) {
+            if (seats < 1 || seats > RowMasks.MAX_SEATS_PER_ROW) {
+                throw new IllegalArgumentException("Rows must have 1 to " + RowMasks.MAX_SEATS_PER_ROW + " seats");
+            }
+        }
+        this.seatsPerRow = seatsPerRow.clone();
+    }
+
+    public static class Allocation {
+        private final int seatsSold;
+        private final int isolatedSeats;
+
+        Allocation(int seatsSold, int isolatedSeats) {
+            this.seatsSold = seatsSold;
+            this.isolatedSeats = isolatedSeats;
+        }
+
+        public int getSeatsSold() { return seatsSold; }
+        public int getIsolatedSeats() { return isolatedSeats; }
+    }
+
+    /**
+     * Solves one group sequence. Safe to call from many threads, every call has its own memo.
+     */
+    public Allocation solve(int[] groups) {
+        return new Search(seatsPerRow, groups).run();
+    }
+
+    /**
+     * One solve. A sub-result is scored as {@code sold * (rows + 1) - isolated}, so a single int
+     * orders allocations by seats sold first and isolated seats second.
+     */
+    private static class Search {
+        private final int[] seatsPerRow;
+        private final int[] sizes;
+        private final int[] counts;
+        private final int countBits;
+        private final int scale;
+        private final int[] capacityFrom;
+        private final Map<Long, Integer> memo = new HashMap<>();
+
+        Search(int[] seatsPerRow, int[] groups) {
+            // Widest rows first, so big groups are tried where they fit and the bound tightens early
+            this.seatsPerRow = Arrays.stream(seatsPerRow).boxed()
+                    .sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+            this.scale = seatsPerRow.length + 1;
+            this.capacityFrom = new int[seatsPerRow.length + 1];
+            for (int row = seatsPerRow.length - 1; row >= 0; row--) {
+                capacityFrom[row] = capacityFrom[row + 1] + this.seatsPerRow[row];
+            }
+
+            // Distinct sizes, largest first, counted. More groups of a size than the hall could seat never matter.
+            int widest = this.seatsPerRow.length == 0 ? 0 : this.seatsPerRow[0];
+            int[] sizeCounts = new int[widest + 1];
+            for (int group : groups) {
+                if (group >= 1 && group <= widest) {
+                    sizeCounts[group]++;
+                }
+            }
+            int distinct = 0;
+            for (int size = 1; size <= widest; size++) {
+                if (sizeCounts[size] > 0) {
+                    distinct++;
+                }
+            }
+            this.sizes = new int[distinct];
+            this.counts = new int[distinct];
+            int maxCount = 0;
+            for (int size = widest, i = 0; size >= 1; size--) {
+                if (sizeCounts[size] > 0) {
+                    sizes[i] = size;
+                    counts[i] = Math.min(sizeCounts[size], capacityFrom[0] / size);
+                    maxCount = Math.max(maxCount, counts[i]);
+                    i++;
+                }
+            }
+
+            this.countBits = Long.SIZE - Long.numberOfLeadingZeros(maxCount);
+            int rowBits = Long.SIZE - Long.numberOfLeadingZeros(seatsPerRow.length);
+            if (distinct * countBits + rowBits >= Long.SIZE) {
+                throw new IllegalArgumentException("Too many distinct group sizes to solve exactly");
+            }
+        }
+
+        Allocation run() {
+            int score = best(0);
+            int sold = (score + scale - 1) / scale;
+            return new Allocation(sold, sold * scale - score);
+        }
+
+        /**
+         * Best score for rows {@code row..} with the groups in {@link #counts} still unseated
+         */
+        private int best(int row) {
+            if (row == seatsPerRow.length) {
+                return 0;
+            }
+            long key = key(row);
+            Integer known = memo.get(key);
+            if (known != null) {
+                return known;
+            }
+
+            // Every remaining seat or every remaining group sold, with nothing isolated
+            int groupSeats = 0;
+            for (int i = 0; i < sizes.length; i++) {
+                groupSeats += counts[i] * sizes[i];
+            }
+            int[] best = {Integer.MIN_VALUE};
+            fill(row, 0, seatsPerRow[row], Math.min(capacityFrom[row], groupSeats) * scale, best);
+            memo.put(key, best[0]);
+            return best[0];
+        }
+
+        /**
+         * Tries every number of groups of {@code sizes[index]} in the row, most first, then the smaller
+         * sizes in the seats that are left. Returns true once {@code bound} is reached and nothing can beat it.
+         */
+        private boolean fill(int row, int index, int free, int bound, int[] best) {
+            if (index == sizes.length || free == 0) {
+                int sold = seatsPerRow[row] - free;
+                int score = sold * scale - (free == 1 ? 1 : 0) + best(row + 1);
+                best[0] = Math.max(best[0], score);
+                return best[0] >= bound;
+            }
+
+            int available = counts[index];
+            boolean done = false;
+            for (int taken = Math.min(available, free / sizes[index]); taken >= 0 && !done; taken--) {
+                counts[index] = available - taken;
+                done = fill(row, index + 1, free - taken * sizes[index], bound, best);
+            }
+            counts[index] = available;
+            return done;
+        }
+
+        private long key(int row) {
+            long key = row;
+            for (int count : counts) {
+                key = (key << countBits) | count;
+            }
+            return key;
+        }
+    }
+}
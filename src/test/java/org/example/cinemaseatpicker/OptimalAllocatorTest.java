@@ -0,0 +1,119 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.OptimalAllocator.Allocation;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.PlacementStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OptimalAllocatorTest {
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    /**
+     * Tries every assignment of every group to a row or to nobody, scored like the allocator:
+     * seats sold first, then fewest rows with exactly one seat left
+     */
+    private int[] bruteForce(int[] seatsPerRow, int[] groups) {
+        int[] best = {-1, Integer.MAX_VALUE};
+        assign(seatsPerRow, groups, 0, seatsPerRow.clone(), best);
+        return best;
+    }
+
+    private void assign(int[] seatsPerRow, int[] groups, int next, int[] free, int[] best) {
+        if (next == groups.length) {
+            int sold = 0;
+            int isolated = 0;
+            for (int row = 0; row < free.length; row++) {
+                sold += seatsPerRow[row] - free[row];
+                isolated += free[row] == 1 ? 1 : 0;
+            }
+            if (sold > best[0] || (sold == best[0] && isolated < best[1])) {
+                best[0] = sold;
+                best[1] = isolated;
+            }
+            return;
+        }
+        assign(seatsPerRow, groups, next + 1, free, best);
+        for (int row = 0; row < free.length; row++) {
+            if (free[row] >= groups[next]) {
+                free[row] -= groups[next];
+                assign(seatsPerRow, groups, next + 1, free, best);
+                free[row] += groups[next];
+            }
+        }
+    }
+
+    private int[] randomGroups(SplittableRandom random, int count, int largest) {
+        int[] groups = new int[count];
+        for (int i = 0; i < count; i++) {
+            groups[i] = 1 + random.nextInt(largest);
+        }
+        return groups;
+    }
+
+    // ==================== TESTS ====================
+
+    @Test
+    @DisplayName("Should match a brute-force search on small halls")
+    void testMatchesBruteForce() {
+        SplittableRandom random = new SplittableRandom(11);
+        for (int round = 0; round < 300; round++) {
+            int[] seatsPerRow = {3 + random.nextInt(6), 3 + random.nextInt(6), 3 + random.nextInt(6)};
+            int[] groups = randomGroups(random, 1 + random.nextInt(8), 6);
+
+            Allocation allocation = new OptimalAllocator(seatsPerRow).solve(groups);
+            int[] expected = bruteForce(seatsPerRow, groups);
+
+            assertEquals(expected[0], allocation.getSeatsSold(), "Seats sold in round " + round);
+            assertEquals(expected[1], allocation.getIsolatedSeats(), "Isolated seats in round " + round);
+        }
+    }
+
+    @Test
+    @DisplayName("Should turn a group away rather than leave a single seat when that sells as much")
+    void testPrefersNoIsolatedSeat() {
+        // 3 + 4 leaves one seat in a row of 8, 4 + 4 fills it
+        Allocation allocation = new OptimalAllocator(new int[]{8}).solve(new int[]{3, 4, 4});
+
+        assertEquals(8, allocation.getSeatsSold());
+        assertEquals(0, allocation.getIsolatedSeats());
+    }
+
+    @Test
+    @DisplayName("Should ignore groups too big for any row")
+    void testGroupTooBig() {
+        Allocation allocation = new OptimalAllocator(new int[]{4, 4}).solve(new int[]{5, 3});
+
+        assertEquals(3, allocation.getSeatsSold());
+        assertEquals(1, allocation.getIsolatedSeats());
+    }
+
+    @Test
+    @DisplayName("Should never sell fewer seats than a placement strategy on the same groups")
+    void testBoundsEveryStrategy() {
+        int[] seatsPerRow = {10, 10, 10, 10, 10, 10, 10, 10, 10, 10};
+        OptimalAllocator allocator = new OptimalAllocator(seatsPerRow);
+        SplittableRandom random = new SplittableRandom(5);
+
+        for (int round = 0; round < 100; round++) {
+            int[] groups = randomGroups(random, 36, 5);
+            Allocation optimum = allocator.solve(groups);
+
+            for (PlacementStrategy strategy : PlacementStrategies.all()) {
+                long[] rows = new long[seatsPerRow.length];
+                int sold = 0;
+                for (int group : groups) {
+                    if (SeatPickerSimulation.place(strategy, seatsPerRow, rows, group, random)) {
+                        sold += group;
+                    }
+                }
+                assertTrue(optimum.getSeatsSold() >= sold, strategy.getName() + " beat the optimum in round " + round);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.cinemaseatpicker;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.SeatEventPublisher;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatEventPublisherTest {
+
+    private static final String SHOWING = SeatPickerService.DEFAULT_SHOWING_ID;
+
+    private SeatPickerService service;
+    private SeatEventPublisher publisher;
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    @BeforeEach
+    void initCinema() {
+        service = new SeatPickerService();
+        service.initSeats();
+        // The ticker never fires on its own, the tests tick by hand
+        publisher = new SeatEventPublisher(service, new ObjectMapper(), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void stopPublisher() {
+        publisher.close();
+    }
+
+    private void book(int row, int seatNumber) {
+        service.orderSeats(List.of(new Seat(seatNumber, row, false)));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "Timed out waiting");
+    }
+
+    /**
+     * Keeps every event written to it as text
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            events.add(items.stream().map(item -> item.getData().toString()).collect(Collectors.joining()));
+        }
+    }
+
+    /**
+     * A client that stops reading: every write blocks until the latch opens
+     */
+    private static class StalledEmitter extends SseEmitter {
+
+        final CountDownLatch unblock = new CountDownLatch(1);
+
+        @Override
+        public void send(Set<DataWithMediaType> items) throws IOException {
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ==================== TEST CASES ====================
+
+    @Test
+    @DisplayName("Should send one event per tick however many seats changed")
+    void testCoalescesTick() throws InterruptedException {
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(SHOWING, service.getVersion(SHOWING), emitter);
+
+        book(1, 1);
+        book(2, 5);
+        book(3, 9);
+        publisher.tick();
+        publisher.tick();
+
+        await(() -> emitter.events.size() == 1);
+        Thread.sleep(50);
+        assertEquals(1, emitter.events.size());
+        assertTrue(emitter.events.get(0).contains("id:" + service.getVersion(SHOWING)));
+    }
+
+    @Test
+    @DisplayName("Should catch a subscriber up from the version its map was loaded at")
+    void testCatchUpOnSubscribe() throws InterruptedException {
+        long loaded = service.getVersion(SHOWING);
+        book(1, 1);
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(SHOWING, loaded, emitter);
+
+        await(() -> emitter.events.size() == 1);
+        assertTrue(emitter.events.get(0).contains("id:" + service.getVersion(SHOWING)));
+    }
+
+    @Test
+    @DisplayName("Should queue the catch-up before any later tick")
+    void testCatchUpBeforeTick() throws InterruptedException {
+        RecordingEmitter watching = new RecordingEmitter();
+        publisher.subscribe(SHOWING, service.getVersion(SHOWING), watching);
+        long loaded = service.getVersion(SHOWING);
+        book(1, 1);
+        RecordingEmitter emitter = new RecordingEmitter();
+        publisher.subscribe(SHOWING, loaded, emitter);
+        long caughtUp = service.getVersion(SHOWING);
+        book(2, 5);
+        publisher.tick();
+
+        await(() -> emitter.events.size() == 2);
+        assertTrue(emitter.events.get(0).contains("id:" + caughtUp));
+        assertTrue(emitter.events.get(1).contains("id:" + service.getVersion(SHOWING)));
+    }
+
+    @Test
+    @DisplayName("Should remove a subscriber whose stream is gone")
+    void testRemovesDeadEmitter() throws InterruptedException {
+        SseEmitter dead = new SseEmitter() {
+            @Override
+            public void send(Set<DataWithMediaType> items) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        publisher.subscribe(SHOWING, service.getVersion(SHOWING), dead);
+        assertEquals(1, publisher.getSubscriberCount(SHOWING));
+
+        book(1, 1);
+        publisher.tick();
+
+        await(() -> publisher.getSubscriberCount(SHOWING) == 0);
+    }
+
+    @Test
+    @DisplayName("Should keep serving other subscribers while one is stalled, and drop it when too far behind")
+    void testStalledSubscriber() throws InterruptedException {
+        StalledEmitter stalled = new StalledEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        publisher.subscribe(SHOWING, service.getVersion(SHOWING), stalled);
+        publisher.subscribe(SHOWING, service.getVersion(SHOWING), healthy);
+
+        try {
+            book(1, 1);
+            publisher.tick();
+            await(() -> healthy.events.size() == 1);
+
+            for (int seat = 2; seat <= 10 && publisher.getSubscriberCount(SHOWING) > 1; seat++) {
+                for (int row = 1; row <= 5; row++) {
+                    if (row > 1 || seat > 1) {
+                        book(row, seat);
+                        publisher.tick();
+                    }
+                }
+            }
+
+            assertEquals(1, publisher.getSubscriberCount(SHOWING));
+            await(() -> healthy.events.size() > 16);
+        } finally {
+            stalled.unblock.countDown();
+        }
+    }
+}
@@ -1,16 +1,59 @@
 package org.example.cinemaseatpicker;
 
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.BatchOrderItem;
+import org.example.cinemaseatpicker.model.BatchOrderResult;
+import org.example.cinemaseatpicker.model.BookingStatus;
 import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.model.SeatCategory;
+import org.example.cinemaseatpicker.model.SeatMapDelta;
+import org.example.cinemaseatpicker.service.FirstFitPlacement;
+import org.example.cinemaseatpicker.service.NaivePlacement;
+import org.example.cinemaseatpicker.service.Placement;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.PlacementStrategy;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.ScoredPlacement;
+import org.example.cinemaseatpicker.service.SeatMapCodec;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
 import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.example.cinemaseatpicker.service.SeatRows;
+import org.example.cinemaseatpicker.service.Showing;
+import org.example.cinemaseatpicker.service.ShowingNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.random.RandomGenerator;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class SeatPickerServiceTest {
 
@@ -428,4 +471,911 @@ class SeatPickerServiceTest {
             assertSelectionInvalid(1, 2, 3);
         }
     }
+
+    @Nested
+    @DisplayName("Showings And Layouts")
+    class ShowingTests {
+
+        @Test
+        @DisplayName("Should keep occupancy separate per showing")
+        void testShowingsAreIndependent() {
+            service.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID);
+            service.orderSeats("evening", createSelection(1, 1, 2, 3));
+
+            assertTrue(service.getAllSeats("evening").get(0).isTaken());
+            assertFalse(service.getAllSeats().get(0).isTaken());
+        }
+
+        @Test
+        @DisplayName("Should share the layout and its seat scores between showings")
+        void testLayoutIsShared() {
+            service.createShowing("a", SeatPickerService.DEFAULT_LAYOUT_ID);
+            service.createShowing("b", SeatPickerService.DEFAULT_LAYOUT_ID);
+
+            assertSame(service.getRegistry().getShowing("a").getLayout(),
+                    service.getRegistry().getShowing("b").getLayout());
+            assertSame(service.getRegistry().getShowing("a").getScores(),
+                    service.getRegistry().getShowing("b").getScores());
+        }
+
+        @Test
+        @DisplayName("Should support rows of different widths")
+        void testUnevenRows() {
+            service.registerLayout(new AuditoriumLayout("wedge", 4, 6, 8));
+            service.createShowing("wedge-show", "wedge");
+
+            assertEquals(18, service.getAllSeats("wedge-show").size());
+            // Taking 2 of 4 seats in row 1 leaves 2 together, no fragmentation
+            assertTrue(service.checkSeats("wedge-show", createSelection(1, 1, 2)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.orderSeats("wedge-show", createSelection(1, 5)));
+        }
+
+        @Test
+        @DisplayName("Should reject unknown showings")
+        void testUnknownShowing() {
+            assertThrows(ShowingNotFoundException.class, () -> service.getAllSeats("missing"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Free Run Index")
+    class FreeRunIndexTests {
+
+        private SeatOccupancy occupancy() {
+            return service.getRegistry().getShowing(SeatPickerService.DEFAULT_SHOWING_ID).getOccupancy();
+        }
+
+        @Test
+        @DisplayName("Should count one full-width run per row in an empty cinema")
+        void testEmptyCinema() {
+            assertEquals(5, occupancy().freeRunCount(10));
+            assertFalse(occupancy().hasFreeRun(9));
+            assertTrue(occupancy().hasFreeRunOfAtLeast(10));
+            assertFalse(occupancy().hasFreeRunOfAtLeast(11));
+        }
+
+        @Test
+        @DisplayName("Should split and remove runs as seats are ordered")
+        void testRunsFollowOrders() {
+            markSeatsAsTaken(1, 4, 5);
+            assertEquals(4, occupancy().freeRunCount(10));
+            assertEquals(1, occupancy().freeRunCount(3));
+            assertEquals(1, occupancy().freeRunCount(5));
+
+            markSeatsAsTaken(1, 1, 2, 3);
+            assertEquals(0, occupancy().freeRunCount(3));
+            assertTrue(occupancy().hasFreeRun(5));
+        }
+
+        @Test
+        @DisplayName("Should rebuild runs on reset")
+        void testRunsAfterReset() {
+            fillRowExcept(1, 2);
+            fillRowExcept(2);
+            assertEquals(1, occupancy().freeRunCount(1));
+
+            service.resetSeats();
+            assertEquals(5, occupancy().freeRunCount(10));
+            assertFalse(occupancy().hasFreeRun(1));
+        }
+
+        @Test
+        @DisplayName("Should keep each row's longest free run in line with its seats")
+        void testLongestRunPerRow() {
+            Random random = new Random(3);
+            for (int i = 0; i < 40; i++) {
+                int row = 1 + random.nextInt(5);
+                markSeatsAsTaken(row, 1 + random.nextInt(10));
+                for (int r = 1; r <= 5; r++) {
+                    long free = ~occupancy().takenMask(r) & occupancy().fullMask(r);
+                    int expected = Long.SIZE - Long.numberOfLeadingZeros(RowMasks.runLengths(free));
+                    assertEquals(expected, occupancy().longestFreeRun(r), "Row " + r + " after " + i + " orders");
+                }
+            }
+
+            service.resetSeats();
+            assertEquals(10, occupancy().longestFreeRun(1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Atomic Booking")
+    class AtomicBookingTests {
+
+        @Test
+        @DisplayName("Should book a valid selection")
+        void testBookValidSelection() {
+            assertEquals(BookingStatus.BOOKED,
+                    service.bookSeats(SeatPickerService.DEFAULT_SHOWING_ID, createSelection(1, 1, 2)));
+            assertTrue(service.getAllSeats().get(0).isTaken());
+        }
+
+        @Test
+        @DisplayName("Should report a conflict when a seat is already taken")
+        void testConflict() {
+            markSeatsAsTaken(1, 3);
+            assertEquals(BookingStatus.CONFLICT,
+                    service.bookSeats(SeatPickerService.DEFAULT_SHOWING_ID, createSelection(1, 2, 3)));
+        }
+
+        @Test
+        @DisplayName("Should reject a fragmenting selection when a better block exists")
+        void testRejected() {
+            fillRowExcept(1, 2, 3, 4);
+            assertEquals(BookingStatus.REJECTED,
+                    service.bookSeats(SeatPickerService.DEFAULT_SHOWING_ID, createSelection(1, 3)));
+        }
+
+        @Test
+        @DisplayName("Should never sell a seat twice under concurrent bookings")
+        void testNoDoubleBooking() throws Exception {
+            service.registerLayout(AuditoriumLayout.uniform("big", 20, 30));
+            service.createShowing("rush", "big");
+
+            int threads = 8;
+            AtomicInteger seatsSold = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int t = 0; t < threads; t++) {
+                int seed = t;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(seed);
+                    start.await();
+                    for (int i = 0; i < 2_000; i++) {
+                        int row = 1 + random.nextInt(20);
+                        int first = 1 + random.nextInt(29);
+                        List<Seat> pair = createSelection(row, first, first + 1);
+                        if (service.bookSeats("rush", pair) == BookingStatus.BOOKED) {
+                            seatsSold.addAndGet(2);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+
+            long taken = service.getAllSeats("rush").stream().filter(Seat::isTaken).count();
+            assertEquals(taken, seatsSold.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Orders")
+    class BatchOrderTests {
+
+        private BatchOrderItem item(String showingId, int row, int... seatNumbers) {
+            return new BatchOrderItem(showingId, createSelection(row, seatNumbers));
+        }
+
+        private List<BookingStatus> statuses(List<BatchOrderResult> results) {
+            return results.stream().map(BatchOrderResult::getStatus).toList();
+        }
+
+        @Test
+        @DisplayName("Should apply items in the same row in arrival order")
+        void testSameRowInOrder() {
+            String id = SeatPickerService.DEFAULT_SHOWING_ID;
+            List<BatchOrderResult> results = service.bookBatch(List.of(
+                    item(id, 1, 1, 2),
+                    item(id, 1, 2, 3),
+                    item(id, 1, 3, 4)));
+
+            assertEquals(List.of(BookingStatus.BOOKED, BookingStatus.CONFLICT, BookingStatus.BOOKED), statuses(results));
+        }
+
+        @Test
+        @DisplayName("Should validate against seats booked earlier in the batch")
+        void testFragmentationSeesEarlierItems() {
+            String id = SeatPickerService.DEFAULT_SHOWING_ID;
+            fillRowExcept(1, 1, 2, 3, 4, 5);
+            // After seats 1-2 are booked, seats 3-5 remain and seat 4 alone would isolate 3 and 5
+            List<BatchOrderResult> results = service.bookBatch(List.of(
+                    item(id, 1, 1, 2),
+                    item(id, 1, 4)));
+
+            assertEquals(List.of(BookingStatus.BOOKED, BookingStatus.REJECTED), statuses(results));
+        }
+
+        @Test
+        @DisplayName("Should mark unreadable items as invalid without failing the batch")
+        void testInvalidItems() {
+            List<BatchOrderResult> results = service.bookBatch(List.of(
+                    item("missing", 1, 1),
+                    item(SeatPickerService.DEFAULT_SHOWING_ID, 1, 11),
+                    new BatchOrderItem(SeatPickerService.DEFAULT_SHOWING_ID, List.of()),
+                    item(SeatPickerService.DEFAULT_SHOWING_ID, 2, 1, 2)));
+
+            assertEquals(List.of(BookingStatus.INVALID, BookingStatus.INVALID, BookingStatus.INVALID, BookingStatus.BOOKED),
+                    statuses(results));
+        }
+    }
+
+    @Nested
+    @DisplayName("Best Seat Finder")
+    class BestSeatFinderTests {
+
+        private final String id = SeatPickerService.DEFAULT_SHOWING_ID;
+
+        @Test
+        @DisplayName("Should pick the centre of the middle row in an empty cinema")
+        void testEmptyCinema() {
+            List<Seat> best = service.findBestSeats(id, 2, null);
+
+            assertEquals(3, best.get(0).getRow());
+            assertEquals(List.of(5, 6), best.stream().map(Seat::getSeat).toList());
+        }
+
+        @Test
+        @DisplayName("Should start from the preferred row")
+        void testPreferredRow() {
+            List<Seat> best = service.findBestSeats(id, 4, 5);
+
+            assertEquals(5, best.get(0).getRow());
+        }
+
+        @Test
+        @DisplayName("Should skip blocks that would leave a single seat")
+        void testAvoidsFragmentation() {
+            fillRowExcept(3, 2, 3, 4);
+            List<Seat> best = service.findBestSeats(id, 2, 3);
+
+            assertNotEquals(3, best.get(0).getRow());
+        }
+
+        @Test
+        @DisplayName("Should return nothing when no block fits")
+        void testNoFit() {
+            for (int row = 1; row <= 5; row++) {
+                fillRowExcept(row, 1, 2);
+            }
+            assertTrue(service.findBestSeats(id, 3, null).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should always suggest seats that checkSeats accepts")
+        void testSuggestionsAreAccepted() {
+            Random random = new Random(42);
+            for (int round = 0; round < 200; round++) {
+                service.resetSeats();
+                for (int i = 0; i < 25; i++) {
+                    int row = 1 + random.nextInt(5);
+                    markSeatsAsTaken(row, 1 + random.nextInt(10));
+                }
+
+                int party = 1 + random.nextInt(4);
+                List<Seat> best = service.findBestSeats(id, party, null);
+                if (!best.isEmpty()) {
+                    assertTrue(service.checkSeats(best), "Suggestion rejected in round " + round);
+                    assertEquals(BookingStatus.BOOKED, service.bookSeats(id, best));
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Split-Row Groups")
+    class SplitRowTests {
+
+        private final String id = SeatPickerService.DEFAULT_SHOWING_ID;
+
+        private List<Seat> block(int firstRow, int rowCount, int... seatNumbers) {
+            List<Seat> seats = new ArrayList<>();
+            for (int row = firstRow; row < firstRow + rowCount; row++) {
+                seats.addAll(createSelection(row, seatNumbers));
+            }
+            return seats;
+        }
+
+        @Test
+        @DisplayName("Should stack a group over adjacent rows when no single row fits it")
+        void testStackedBlock() {
+            fillRowExcept(1);
+            fillRowExcept(2);
+            fillRowExcept(3);
+            fillRowExcept(4, 4, 5, 6);
+            fillRowExcept(5, 4, 5, 6);
+
+            assertTrue(service.findBestSeats(id, 6, null).isEmpty());
+            List<Seat> best = service.findBestSeats(id, 6, null, true);
+
+            assertEquals(List.of("4-4", "4-5", "4-6", "5-4", "5-5", "5-6"),
+                    best.stream().map(seat -> seat.getRow() + "-" + seat.getSeat()).toList());
+            assertTrue(service.checkSeats(id, best));
+            assertEquals(BookingStatus.BOOKED, service.bookSeats(id, best));
+            assertEquals(0, service.getAllSeats().stream().filter(seat -> !seat.isTaken()).count());
+        }
+
+        @Test
+        @DisplayName("Should prefer a single row when the group fits in one")
+        void testSingleRowFirst() {
+            List<Seat> best = service.findBestSeats(id, 4, null, true);
+
+            assertEquals(1, best.stream().map(Seat::getRow).distinct().count());
+        }
+
+        @Test
+        @DisplayName("Should put the shorter part of an uneven group in the last row")
+        void testUnevenGroup() {
+            List<Seat> best = service.findBestSeats(id, 15, 1, true);
+
+            assertEquals(8, best.stream().filter(seat -> seat.getRow() == 1).count());
+            assertEquals(7, best.stream().filter(seat -> seat.getRow() == 2).count());
+            assertEquals(BookingStatus.BOOKED, service.bookSeats(id, best));
+        }
+
+        @Test
+        @DisplayName("Should give back the first rows when a later row can't be booked")
+        void testAllOrNothing() {
+            markSeatsAsTaken(5, 5, 6);
+
+            assertEquals(BookingStatus.CONFLICT, service.bookSeats(id, block(4, 2, 4, 5, 6)));
+            assertEquals(0, service.getAllSeats().stream().filter(seat -> seat.getRow() == 4 && seat.isTaken()).count());
+        }
+
+        @Test
+        @DisplayName("Should only accept lined-up blocks in adjacent rows")
+        void testShapeRules() {
+            List<Seat> apart = new ArrayList<>(createSelection(1, 4, 5));
+            apart.addAll(createSelection(3, 4, 5));
+            List<Seat> offset = new ArrayList<>(createSelection(1, 1, 2));
+            offset.addAll(createSelection(2, 5, 6));
+            List<Seat> narrower = new ArrayList<>(createSelection(1, 4, 5, 6));
+            narrower.addAll(createSelection(2, 5, 6));
+            List<Seat> gapped = new ArrayList<>(createSelection(1, 1, 10));
+            gapped.addAll(createSelection(2, 3, 7));
+
+            assertThrows(IllegalArgumentException.class, () -> service.bookSeats(id, apart));
+            assertThrows(IllegalArgumentException.class, () -> service.bookSeats(id, offset));
+            assertThrows(IllegalArgumentException.class, () -> service.bookSeats(id, gapped));
+            assertEquals(BookingStatus.BOOKED, service.bookSeats(id, narrower));
+        }
+
+        @Test
+        @DisplayName("Should book stacked blocks in a batch and keep holds to one row")
+        void testBatchAndHolds() {
+            List<BatchOrderResult> results = service.bookBatch(List.of(
+                    new BatchOrderItem(id, block(2, 2, 1, 2, 3)),
+                    new BatchOrderItem(id, createSelection(3, 4, 5))));
+
+            assertEquals(BookingStatus.BOOKED, results.get(0).getStatus());
+            assertEquals(BookingStatus.BOOKED, results.get(1).getStatus());
+            assertEquals(BookingStatus.CONFLICT, service.bookSeats(id, block(2, 2, 3, 4)));
+            assertThrows(IllegalArgumentException.class, () -> service.holdSeats("hold", id, block(4, 2, 1, 2)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Seat Categories And Scores")
+    class ScoredSeatTests {
+
+        private final String id = "scored";
+
+        @BeforeEach
+        void createShowing() {
+            // Row 1 is premium, seats 1 and 2 of row 5 are wheelchair spaces and seat 3 their companion seat
+            Map<SeatCategory, long[]> categories = AuditoriumLayout.categoryMasks(5, Map.of(
+                    SeatCategory.PREMIUM, Map.of(1, List.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)),
+                    SeatCategory.WHEELCHAIR, Map.of(5, List.of(1, 2)),
+                    SeatCategory.COMPANION, Map.of(5, List.of(3))));
+            service.registerLayout(new AuditoriumLayout("categories", new int[]{10, 10, 10, 10, 10}, categories));
+            service.createShowing(id, "categories");
+        }
+
+        private List<String> seatIds(List<Seat> seats) {
+            return seats.stream().map(seat -> seat.getRow() + "-" + seat.getSeat()).toList();
+        }
+
+        @Test
+        @DisplayName("Should pick the centre of the middle row in an empty cinema")
+        void testCentreScoresHighest() {
+            assertEquals(List.of("3-5", "3-6"), seatIds(service.findBestScoredSeats(id, 2, Set.of())));
+        }
+
+        @Test
+        @DisplayName("Should only use seats of every requested category")
+        void testCategoryFilter() {
+            assertEquals(List.of("1-4", "1-5", "1-6", "1-7"),
+                    seatIds(service.findBestScoredSeats(id, 4, Set.of(SeatCategory.PREMIUM))));
+            assertEquals(List.of("5-1", "5-2"),
+                    seatIds(service.findBestScoredSeats(id, 2, Set.of(SeatCategory.WHEELCHAIR))));
+            assertTrue(service.findBestScoredSeats(id, 3, Set.of(SeatCategory.WHEELCHAIR)).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should keep reserved seats out of searches that don't ask for them")
+        void testReservedSeatsAreSkipped() {
+            for (int row = 1; row <= 4; row++) {
+                service.orderSeats(id, createSelection(row, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+            }
+
+            assertEquals(List.of("5-4", "5-5", "5-6", "5-7", "5-8", "5-9", "5-10"),
+                    seatIds(service.findBestScoredSeats(id, 7, Set.of())));
+            assertTrue(service.findBestScoredSeats(id, 8, Set.of()).isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should find the same best score as trying every block")
+        void testMatchesEveryWindow() {
+            Showing showing = service.getRegistry().getShowing(id);
+            SeatOccupancy occupancy = showing.getOccupancy();
+            Random random = new Random(17);
+
+            for (int round = 0; round < 300; round++) {
+                service.resetSeats(id);
+                for (int i = 0; i < 20; i++) {
+                    service.orderSeats(id, createSelection(1 + random.nextInt(5), 1 + random.nextInt(10)));
+                }
+                int party = 1 + random.nextInt(5);
+
+                int expected = Integer.MIN_VALUE;
+                for (int row = 1; row <= 5; row++) {
+                    long free = ~occupancy.takenMask(row) & occupancy.fullMask(row);
+                    long starts = RowMasks.fittingStarts(free & showing.getLayout().eligibleMask(row, Set.of()), party)
+                            & RowMasks.nonFragmentingStarts(free, party);
+                    for (long rest = starts; rest != 0; rest &= rest - 1) {
+                        expected = Math.max(expected, showing.getScores().blockScore(row, Long.numberOfTrailingZeros(rest) + 1, party));
+                    }
+                }
+
+                List<Seat> best = service.findBestScoredSeats(id, party, Set.of());
+                if (expected == Integer.MIN_VALUE) {
+                    continue;
+                }
+                assertEquals(expected, showing.getScores().blockScore(best.get(0).getRow(), best.get(0).getSeat(), party),
+                        "Best block score in round " + round);
+            }
+        }
+
+        @Test
+        @DisplayName("Should fall back to the best block the strategy allows, not only the best of the row")
+        void testFallbackTriesEveryStart() {
+            service.registerLayout(AuditoriumLayout.uniform("single", 1, 5));
+            Showing showing = service.createShowing("single-row", "single");
+            service.orderSeats("single-row", createSelection(1, 3));
+
+            // Every free seat leaves a single seat behind, and the strategy only lets seat 5 go
+            PlacementStrategy onlyLastSeat = new PlacementStrategy() {
+                @Override
+                public String getName() {
+                    return "only-last-seat";
+                }
+
+                @Override
+                public Placement place(SeatRows rows, int groupSize, int preferredRow, RandomGenerator random) {
+                    return null;
+                }
+
+                @Override
+                public boolean allows(long taken, long selection, long fullMask, long freeRunLengths) {
+                    return selection == RowMasks.bit(5);
+                }
+            };
+            Placement placement = ScoredPlacement.place(showing.getOccupancy(), showing.getLayout(), showing.getScores(),
+                    onlyLastSeat, 1, Set.of());
+
+            assertEquals(1, placement.getRow());
+            assertEquals(RowMasks.bit(5), placement.getSeatMask());
+        }
+
+        @Test
+        @DisplayName("Should return categories with the layout")
+        void testLayoutCategories() {
+            AuditoriumLayout layout = service.getRegistry().getLayout("categories");
+
+            assertEquals(Map.of(5, List.of(1, 2)), layout.getCategories().get(SeatCategory.WHEELCHAIR));
+            assertFalse(layout.getCategories().containsKey(SeatCategory.AISLE));
+            assertThrows(IllegalArgumentException.class, () -> new AuditoriumLayout("bad", new int[]{4},
+                    Map.of(SeatCategory.AISLE, new long[]{RowMasks.bit(5)})));
+        }
+    }
+
+    @Nested
+    @DisplayName("Placement Strategies")
+    class PlacementStrategyTests {
+
+        @Test
+        @DisplayName("Should use anti-fragmentation when no strategy is given")
+        void testDefaultStrategy() {
+            Showing showing = service.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID, null);
+
+            assertSame(PlacementStrategies.ANTI_FRAGMENTATION, showing.getStrategy());
+        }
+
+        @Test
+        @DisplayName("Should suggest seats with the showing's strategy")
+        void testFirstFitSuggestsFrontRow() {
+            service.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID, FirstFitPlacement.NAME);
+
+            List<Seat> best = service.findBestSeats("evening", 3, null);
+
+            assertEquals(1, best.get(0).getRow());
+            assertEquals(List.of(1, 2, 3), best.stream().map(Seat::getSeat).toList());
+        }
+
+        @Test
+        @DisplayName("Should book fragmenting selections when the strategy allows them")
+        void testNaiveAllowsFragmentation() {
+            service.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID, NaivePlacement.NAME);
+            List<Seat> selection = createSelection(1, 2, 3);
+
+            assertTrue(service.checkSeats("evening", selection));
+            assertEquals(BookingStatus.BOOKED, service.bookSeats("evening", selection));
+            assertFalse(service.checkSeats(selection));
+        }
+
+        @Test
+        @DisplayName("Should reject unknown strategies")
+        void testUnknownStrategy() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> service.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID, "cheapest"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Metrics")
+    class MetricsTests {
+
+        private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        private SeatPickerService measured;
+
+        @BeforeEach
+        void initMeasuredCinema() {
+            measured = new SeatPickerService("", true, Duration.ZERO, meterRegistry);
+            measured.initSeats();
+        }
+
+        private double orders(String outcome) {
+            return meterRegistry.get("cinema.orders").tag("outcome", outcome).counter().count();
+        }
+
+        private double gauge(String name, String showing) {
+            return meterRegistry.get(name).tag("showing", showing).gauge().value();
+        }
+
+        @Test
+        @DisplayName("Should count orders by outcome and time every booking")
+        void testOrderOutcomes() {
+            String id = SeatPickerService.DEFAULT_SHOWING_ID;
+            measured.bookSeats(id, createSelection(1, 1, 2));
+            measured.bookSeats(id, createSelection(1, 2, 3));
+            measured.bookSeats(id, createSelection(2, 2, 3));
+            assertThrows(IllegalArgumentException.class, () -> measured.bookSeats(id, createSelection(1, 11)));
+
+            assertEquals(1, orders("booked"));
+            assertEquals(1, orders("conflict"));
+            assertEquals(1, orders("rejected"));
+            assertEquals(1, orders("invalid"));
+            assertEquals(4, meterRegistry.get("cinema.seats.book").timer().count());
+        }
+
+        @Test
+        @DisplayName("Should count checks the strategy rejects")
+        void testCheckOutcomes() {
+            measured.checkSeats(createSelection(1, 1, 2));
+            measured.checkSeats(createSelection(1, 2, 3));
+
+            assertEquals(1, meterRegistry.get("cinema.seats.checks").tag("outcome", "allowed").counter().count());
+            assertEquals(1, meterRegistry.get("cinema.seats.checks").tag("outcome", "rejected").counter().count());
+            assertEquals(2, meterRegistry.get("cinema.seats.check").timer().count());
+        }
+
+        @Test
+        @DisplayName("Should count the strategy checks of orders, but not their conflicts")
+        void testOrderChecks() {
+            String id = SeatPickerService.DEFAULT_SHOWING_ID;
+            // One row group for the batch path, then a single booking
+            measured.bookBatch(List.of(
+                    new BatchOrderItem(id, createSelection(1, 1, 2)),
+                    new BatchOrderItem(id, createSelection(1, 2, 3)),
+                    new BatchOrderItem(id, createSelection(1, 4, 5))));
+            measured.bookSeats(id, createSelection(2, 1, 2));
+
+            assertEquals(2, meterRegistry.get("cinema.seats.checks").tag("outcome", "allowed").counter().count());
+            assertEquals(1, meterRegistry.get("cinema.seats.checks").tag("outcome", "rejected").counter().count());
+            assertEquals(3, meterRegistry.get("cinema.seats.check").timer().count());
+        }
+
+        @Test
+        @DisplayName("Should report occupancy and isolated seats per showing")
+        void testShowingGauges() {
+            measured.createShowing("evening", SeatPickerService.DEFAULT_LAYOUT_ID);
+            measured.orderSeats("evening", createSelection(1, 2, 3, 4, 5, 6, 7, 8, 9, 10));
+            measured.orderSeats("evening", createSelection(2, 1, 3));
+
+            assertEquals(11.0 / 50, gauge("cinema.showing.occupancy", "evening"), 1e-9);
+            // Seat 1 in row 1 and seat 2 in row 2
+            assertEquals(2, gauge("cinema.showing.isolated.seats", "evening"));
+            assertEquals(0, gauge("cinema.showing.isolated.seats", SeatPickerService.DEFAULT_SHOWING_ID));
+        }
+    }
+
+    @Nested
+    @DisplayName("Fragmentation Formula")
+    class FragmentationFormulaTests {
+
+        /**
+         * The neighbour walk checkSeats used before the bitwise formula, kept as the reference
+         */
+        private boolean neighbourWalk(boolean[] rowState, List<Integer> selectedIndexes) {
+            for (int index : selectedIndexes) {
+                rowState[index] = true;
+            }
+            for (int index : selectedIndexes) {
+                if (index > 0 && !rowState[index - 1]) {
+                    if ((index - 1 == 0) || rowState[index - 2]) {
+                        return true;
+                    }
+                }
+                if (index < rowState.length - 1 && !rowState[index + 1]) {
+                    if ((index + 1 == rowState.length - 1) || rowState[index + 2]) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        @Test
+        @DisplayName("Should match the neighbour walk for every row and selection of a 10-seat row")
+        void testExhaustiveTenSeatRow() {
+            int width = 10;
+            long full = RowMasks.fullMask(width);
+
+            for (long taken = 0; taken <= full; taken++) {
+                for (long selection = 1; selection <= full; selection++) {
+                    boolean[] rowState = new boolean[width];
+                    List<Integer> selectedIndexes = new ArrayList<>();
+                    for (int i = 0; i < width; i++) {
+                        rowState[i] = (taken & (1L << i)) != 0;
+                        if ((selection & (1L << i)) != 0) {
+                            selectedIndexes.add(i);
+                        }
+                    }
+
+                    assertEquals(neighbourWalk(rowState, selectedIndexes),
+                            RowMasks.createsFragmentation(taken, selection, full),
+                            "taken=" + Long.toBinaryString(taken) + " selection=" + Long.toBinaryString(selection));
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("Should treat both ends of a full-width row as edges")
+        void testSixtyFourSeatRow() {
+            long full = RowMasks.fullMask(64);
+            // Taking seat 63 leaves seat 64 alone at the right edge
+            assertTrue(RowMasks.createsFragmentation(0L, RowMasks.bit(63), full));
+            // Taking seat 2 leaves seat 1 alone at the left edge
+            assertTrue(RowMasks.createsFragmentation(0L, RowMasks.bit(2), full));
+            assertFalse(RowMasks.createsFragmentation(0L, RowMasks.range(1, 2), full));
+        }
+    }
+
+    @Nested
+    @DisplayName("Seat Map Versions")
+    class SeatMapVersionTests {
+
+        private final String id = SeatPickerService.DEFAULT_SHOWING_ID;
+
+        @Test
+        @DisplayName("Should bump the version on every change")
+        void testVersionBumps() {
+            long before = service.getVersion(id);
+            markSeatsAsTaken(1, 1, 2);
+            assertTrue(service.getVersion(id) > before);
+        }
+
+        @Test
+        @DisplayName("Should return only the seats that changed")
+        void testDelta() {
+            markSeatsAsTaken(1, 1, 2);
+            long version = service.getVersion(id);
+            markSeatsAsTaken(3, 5);
+            markSeatsAsTaken(4, 9, 10);
+
+            SeatMapDelta delta = service.getSeatChanges(id, version);
+
+            assertFalse(delta.isFull());
+            assertEquals(service.getVersion(id), delta.getVersion());
+            assertEquals(List.of("3-5", "4-9", "4-10"),
+                    delta.getSeats().stream().map(seat -> seat.getRow() + "-" + seat.getSeat()).toList());
+            assertTrue(delta.getSeats().stream().allMatch(Seat::isTaken));
+        }
+
+        @Test
+        @DisplayName("Should return an empty delta when nothing changed")
+        void testEmptyDelta() {
+            markSeatsAsTaken(1, 1, 2);
+            assertTrue(service.getSeatChanges(id, service.getVersion(id)).getSeats().isEmpty());
+        }
+
+        @Test
+        @DisplayName("Should fall back to whole rows when the client is far behind")
+        void testFallbackToRows() {
+            for (int i = 0; i < 100; i++) {
+                markSeatsAsTaken(5, 1);
+                service.resetSeats();
+            }
+            markSeatsAsTaken(2, 4);
+
+            SeatMapDelta delta = service.getSeatChanges(id, 0);
+
+            assertFalse(delta.isFull());
+            // Rows 2 and 5 changed, both come back whole
+            assertEquals(20, delta.getSeats().size());
+            assertTrue(delta.getSeats().stream().anyMatch(seat -> seat.getRow() == 2 && seat.getSeat() == 4 && seat.isTaken()));
+        }
+
+        @Test
+        @DisplayName("Should send the full map for an unknown version")
+        void testUnknownVersion() {
+            assertTrue(service.getSeatChanges(id, 999).isFull());
+        }
+
+        @Test
+        @DisplayName("Should encode the seat map as a layout descriptor and one bitmap per row")
+        void testEncodedSeatMap() {
+            service.registerLayout(new AuditoriumLayout("wide", new int[]{3, 12}));
+            service.createShowing("encoded", "wide");
+            service.bookSeats("encoded", List.of(new Seat(1, 2, false), new Seat(9, 2, false), new Seat(12, 2, false)));
+
+            ByteBuffer encoded = ByteBuffer.wrap(service.getEncodedSeatMap("encoded"));
+
+            assertEquals('S', encoded.get());
+            assertEquals('M', encoded.get());
+            assertEquals(1, encoded.get());
+            assertEquals(service.getVersion("encoded"), encoded.getLong());
+            assertEquals(2, encoded.getShort());
+            assertEquals(3, encoded.get());
+            assertEquals(12, encoded.get());
+            // Row 1 fits in one byte, row 2 needs two
+            assertEquals(0, encoded.get());
+            assertEquals(0b0000_0001, encoded.get());
+            assertEquals(0b0000_1001, encoded.get());
+            assertFalse(encoded.hasRemaining());
+        }
+    }
+
+    @Nested
+    @SpringBootTest
+    @AutoConfigureMockMvc
+    @DisplayName("Seat Map Endpoint")
+    class SeatMapEndpointTests {
+
+        private static final String SEATS = "/showings/endpoint/seats";
+
+        @Autowired
+        MockMvc mockMvc;
+
+        @Autowired
+        SeatPickerService seatPickerService;
+
+        @BeforeEach
+        void createShowing() {
+            if (seatPickerService.getRegistry().getShowings().stream().noneMatch(showing -> showing.getId().equals("endpoint"))) {
+                seatPickerService.createShowing("endpoint", SeatPickerService.DEFAULT_LAYOUT_ID);
+            }
+        }
+
+        @Test
+        @DisplayName("Should send the bitmap only to clients that accept it")
+        void testAcceptNegotiation() throws Exception {
+            byte[] bitmap = mockMvc.perform(get(SEATS).accept(SeatMapCodec.MEDIA_TYPE))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(SeatMapCodec.MEDIA_TYPE))
+                    .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)))
+                    .andReturn().getResponse().getContentAsByteArray();
+            assertEquals('S', bitmap[0]);
+            assertEquals('M', bitmap[1]);
+
+            mockMvc.perform(get(SEATS).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                    .andExpect(jsonPath("$[0].row").value(1));
+            mockMvc.perform(get(SEATS))
+                    .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON));
+        }
+
+        @Test
+        @DisplayName("Should answer 304 while the seat map and representation are unchanged")
+        void testNotModified() throws Exception {
+            String jsonTag = mockMvc.perform(get(SEATS).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+            assertNotNull(jsonTag);
+
+            mockMvc.perform(get(SEATS).accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                    .andExpect(status().isNotModified());
+            // The bitmap is another representation of the same version
+            mockMvc.perform(get(SEATS).accept(SeatMapCodec.MEDIA_TYPE).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                    .andExpect(status().isOk());
+
+            seatPickerService.orderSeats("endpoint", List.of(new Seat(1, 1, false), new Seat(2, 1, false)));
+            mockMvc.perform(get(SEATS).accept(MediaType.APPLICATION_JSON).header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, not(jsonTag)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Cancellations")
+    class CancellationTests {
+
+        private final String id = SeatPickerService.DEFAULT_SHOWING_ID;
+
+        private String book(List<Seat> seats) {
+            BatchOrderResult result = service.bookBatch(List.of(new BatchOrderItem(id, seats))).get(0);
+            assertEquals(BookingStatus.BOOKED, result.getStatus());
+            return result.getBookingId();
+        }
+
+        private SeatOccupancy occupancy() {
+            return service.getRegistry().getShowing(id).getOccupancy();
+        }
+
+        @Test
+        @DisplayName("Should free exactly the booked seats and merge them into the runs around them")
+        void testCancelMergesRuns() {
+            String left = book(createSelection(1, 1, 2, 3));
+            String middle = book(createSelection(1, 4, 5, 6));
+            assertEquals(1, occupancy().freeRunCount(4));
+            long version = service.getVersion(id);
+
+            assertTrue(service.cancelBooking(id, middle));
+
+            assertEquals(RowMasks.range(1, 3), occupancy().takenMask(1));
+            assertEquals(0, occupancy().freeRunCount(4));
+            assertEquals(1, occupancy().freeRunCount(7));
+            assertEquals(7, occupancy().longestFreeRun(1));
+            // Only the freed seats are sent to clients that are up to date
+            SeatMapDelta delta = service.getSeatChanges(id, version);
+            assertEquals(List.of(4, 5, 6), delta.getSeats().stream().map(Seat::getSeat).toList());
+            assertTrue(service.cancelBooking(id, left));
+            assertEquals(5, occupancy().freeRunCount(10));
+        }
+
+        @Test
+        @DisplayName("Should cancel a booking only once")
+        void testCancelOnce() {
+            String booking = book(createSelection(2, 1, 2));
+            assertTrue(service.cancelBooking(id, booking));
+            // Someone else buys the seats, the old booking must not free them again
+            book(createSelection(2, 1, 2));
+
+            assertFalse(service.cancelBooking(id, booking));
+            assertFalse(service.cancelBooking(id, "unknown"));
+            assertEquals(RowMasks.range(1, 2), occupancy().takenMask(2));
+        }
+
+        @Test
+        @DisplayName("Should free every row of a stacked block")
+        void testCancelStackedBlock() {
+            List<Seat> block = new ArrayList<>(createSelection(2, 4, 5));
+            block.addAll(createSelection(3, 4, 5));
+            String booking = book(block);
+
+            assertTrue(service.cancelBooking(id, booking));
+            assertEquals(0, occupancy().takenMask(2));
+            assertEquals(0, occupancy().takenMask(3));
+        }
+
+        @Test
+        @DisplayName("Should forget bookings on reset")
+        void testResetForgetsBookings() {
+            String booking = book(createSelection(1, 1, 2));
+            service.resetSeats(id);
+            book(createSelection(1, 1, 2, 3));
+
+            assertFalse(service.cancelBooking(id, booking));
+            assertEquals(RowMasks.range(1, 3), occupancy().takenMask(1));
+        }
+    }
 }
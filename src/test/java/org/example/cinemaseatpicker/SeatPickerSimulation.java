@@ -1,429 +1,397 @@
 package org.example.cinemaseatpicker;
 
-import org.example.cinemaseatpicker.model.Seat;
-
-import java.util.*;
-
+import org.example.cinemaseatpicker.service.Placement;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.PlacementStrategy;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.SeatRows;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Monte Carlo comparison of the {@link PlacementStrategy placement strategies} the service uses.
+ * <p>
+ * Every trial fills an empty venue with a stream of groups drawn from the group-size distribution and
+ * places them with each strategy in turn, so all strategies see exactly the same arrivals. Every strategy
+ * is compared with the naive one on the same trials. Trials run
+ * in parallel on the common fork-join pool, each with its own {@link SplittableRandom} seeded from the
+ * run seed and the trial number, so a run gives the same numbers on any machine and any core count.
+ * <p>
+ * Every trial is also solved offline by the {@link OptimalAllocator}, and each strategy's gap to that
+ * optimum is reported on the same trials.
+ */
 public class SeatPickerSimulation {
 
-    private static final int TOTAL_ROWS = 10;
-    private static final int SEATS_PER_ROW = 10;
-
-    // Simulation result class to track metrics
-    public static class SimulationResult {
-        private final String simulationType;
-        private int singleIsolatedSeats;
-        private int groupsPlaced;
-        private int groupsRejected;
-        private int totalSeatsOccupied;
-        private double utilizationPercentage;
-        private double fragmentationRate;
-
-        public SimulationResult(String simulationType) {
-            this.simulationType = simulationType;
+    private static final double Z_95 = 1.96;
+
+    // ==================== CONFIGURATION ====================
+
+    public static class Config {
+        private final int[] seatsPerRow;
+        private final OptimalAllocator optimalAllocator;
+        private final List<PlacementStrategy> strategies;
+        private final int[] groupSizes;
+        private final double[] cumulativeWeights;
+        private final int arrivals;
+        private final int trials;
+        private final long seed;
+
+        /**
+         * @param groupDistribution group size to relative weight, e.g. {@code {2: 40, 3: 30}}
+         * @param arrivals          groups arriving per trial
+         */
+        public Config(int[] seatsPerRow, Map<Integer, Double> groupDistribution, int arrivals, int trials, long seed) {
+            this(seatsPerRow, PlacementStrategies.all(), groupDistribution, arrivals, trials, seed);
         }
 
-        public void calculateMetrics() {
-            int totalSeats = TOTAL_ROWS * SEATS_PER_ROW;
-            this.utilizationPercentage = (totalSeatsOccupied * 100.0) / totalSeats;
-            this.fragmentationRate = totalSeatsOccupied > 0
-                ? (singleIsolatedSeats * 100.0) / totalSeatsOccupied
-                : 0.0;
+        public Config(int[] seatsPerRow, List<PlacementStrategy> strategies, Map<Integer, Double> groupDistribution,
+                      int arrivals, int trials, long seed) {
+            if (groupDistribution.isEmpty() || arrivals < 1 || trials < 1) {
+                throw new IllegalArgumentException("Need at least one group size, arrival and trial");
+            }
+            for (int seats : seatsPerRow) {
+                if (seats < 1 || seats > RowMasks.MAX_SEATS_PER_ROW) {
+                    throw new IllegalArgumentException("Rows must have 1 to " + RowMasks.MAX_SEATS_PER_ROW + " seats");
+                }
+            }
+            this.seatsPerRow = seatsPerRow.clone();
+            this.optimalAllocator = new OptimalAllocator(seatsPerRow);
+            // Naive first, it is the baseline every other strategy is paired with
+            this.strategies = Stream.concat(Stream.of(PlacementStrategies.NAIVE),
+                    strategies.stream().filter(strategy -> strategy != PlacementStrategies.NAIVE)).toList();
+            this.groupSizes = groupDistribution.keySet().stream().mapToInt(Integer::intValue).sorted().toArray();
+            this.cumulativeWeights = new double[groupSizes.length];
+            double total = 0;
+            for (int i = 0; i < groupSizes.length; i++) {
+                total += groupDistribution.get(groupSizes[i]);
+                cumulativeWeights[i] = total;
+            }
+            this.arrivals = arrivals;
+            this.trials = trials;
+            this.seed = seed;
         }
 
-        @Override
-        public String toString() {
-            return String.format(
-                """
-                === %s ===
-                Groups placed: %d
-                Groups rejected: %d
-                Total seats occupied: %d
-                Cinema utilization: %.2f%%
-                Single isolated seats: %d
-                Fragmentation rate: %.2f%% (isolated/occupied)
-                """,
-                simulationType, groupsPlaced, groupsRejected,
-                totalSeatsOccupied, utilizationPercentage, singleIsolatedSeats,
-                fragmentationRate
-            );
+        public int getCapacity() {
+            return Arrays.stream(seatsPerRow).sum();
         }
 
-        // Getters
-        public int getSingleIsolatedSeats() { return singleIsolatedSeats; }
-        public double getFragmentationRate() { return fragmentationRate; }
-    }
-
-    // Helper class to represent a contiguous block of seats
-    private static class SeatBlock {
-        int row;
-        int startSeat;
-        int size;
+        public List<PlacementStrategy> getStrategies() {
+            return strategies;
+        }
 
-        SeatBlock(int row, int startSeat, int size) {
-            this.row = row;
-            this.startSeat = startSeat;
-            this.size = size;
+        int drawGroupSize(SplittableRandom random) {
+            double pick = random.nextDouble(cumulativeWeights[cumulativeWeights.length - 1]);
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                if (pick < cumulativeWeights[i]) {
+                    return groupSizes[i];
+                }
+            }
+            return groupSizes[groupSizes.length - 1];
         }
     }
 
+    // ==================== RESULTS ====================
+
     /**
-     * NAIVE SIMULATION: Randomly selects from available contiguous blocks
+     * Running mean and variance (Welford), mergeable so parallel trials can be combined
      */
-    public SimulationResult runNaiveSimulation(List<Integer> groupSequence) {
-        Map<Integer, List<Seat>> seatMap = initializeCinema();
-        SimulationResult result = new SimulationResult("Naive (Random Block Selection)");
-
-        for (int groupSize : groupSequence) {
-            // Find all suitable blocks
-            List<SeatBlock> suitableBlocks = findAllSuitableBlocks(seatMap, groupSize);
+    public static class Stats {
+        private long count;
+        private double mean;
+        private double m2;
+
+        void add(double value) {
+            count++;
+            double delta = value - mean;
+            mean += delta / count;
+            m2 += delta * (value - mean);
+        }
 
-            if (suitableBlocks.isEmpty()) {
-                result.groupsRejected++;
-                continue;
+        void merge(Stats other) {
+            if (other.count == 0) {
+                return;
             }
+            long total = count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * other.count / total;
+            m2 += other.m2 + delta * delta * count * other.count / total;
+            count = total;
+        }
 
-            // Randomly pick a block
-            SeatBlock chosenBlock = suitableBlocks.get((int) (Math.random() * suitableBlocks.size()));
-
-            // Randomly place group within the block
-            int maxStartPosition = chosenBlock.startSeat + (chosenBlock.size - groupSize);
-            int startPosition = chosenBlock.startSeat + (int) (Math.random() * (chosenBlock.size - groupSize + 1));
-
-            // Mark seats as taken
-            for (int i = 0; i < groupSize; i++) {
-                int seatNumber = startPosition + i;
-                seatMap.get(chosenBlock.row).get(seatNumber - 1).setTaken(true);
-            }
+        public long getCount() { return count; }
+        public double getMean() { return mean; }
+        public double getStandardDeviation() { return count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0; }
 
-            result.groupsPlaced++;
-            result.totalSeatsOccupied += groupSize;
+        /**
+         * Half-width of the 95% confidence interval of the mean
+         */
+        public double getConfidence95() {
+            return count > 1 ? Z_95 * getStandardDeviation() / Math.sqrt(count) : 0.0;
         }
 
-        // Calculate metrics
-        result.singleIsolatedSeats = countSingleIsolatedSeats(seatMap);
-        result.calculateMetrics();
-
-        return result;
+        @Override
+        public String toString() {
+            return String.format("%10.4f ± %.4f", mean, getConfidence95());
+        }
     }
 
-    /**
-     * ALGORITHM SIMULATION: Uses anti-fragmentation logic
-     */
-    public SimulationResult runAlgorithmSimulation(List<Integer> groupSequence) {
-        Map<Integer, List<Seat>> seatMap = initializeCinema();
-        SimulationResult result = new SimulationResult("Algorithm (Anti-Fragmentation)");
-
-        for (int groupSize : groupSequence) {
-            List<Seat> selectedSeats = findBestSeatsWithAlgorithm(seatMap, groupSize);
+    public static class StrategyResult {
+        private final Stats utilization = new Stats();
+        private final Stats rejectionRate = new Stats();
+        private final Stats isolatedSeats = new Stats();
+        // This strategy minus naive per trial, paired on the same arrivals
+        private final Stats isolatedSeatsDifference = new Stats();
+        private final Stats utilizationDifference = new Stats();
+        // The offline optimum minus this strategy per trial, so always zero or more for utilization
+        private final Stats utilizationGap = new Stats();
+        private final Stats isolatedSeatsGap = new Stats();
+
+        void merge(StrategyResult other) {
+            utilization.merge(other.utilization);
+            rejectionRate.merge(other.rejectionRate);
+            isolatedSeats.merge(other.isolatedSeats);
+            isolatedSeatsDifference.merge(other.isolatedSeatsDifference);
+            utilizationDifference.merge(other.utilizationDifference);
+            utilizationGap.merge(other.utilizationGap);
+            isolatedSeatsGap.merge(other.isolatedSeatsGap);
+        }
 
-            if (selectedSeats == null) {
-                result.groupsRejected++;
-                continue;
-            }
+        public Stats getUtilization() { return utilization; }
+        public Stats getRejectionRate() { return rejectionRate; }
+        public Stats getIsolatedSeats() { return isolatedSeats; }
+        public Stats getIsolatedSeatsDifference() { return isolatedSeatsDifference; }
+        public Stats getUtilizationDifference() { return utilizationDifference; }
+        public Stats getUtilizationGap() { return utilizationGap; }
+        public Stats getIsolatedSeatsGap() { return isolatedSeatsGap; }
+    }
 
-            // Mark seats as taken
-            for (Seat seat : selectedSeats) {
-                seatMap.get(seat.getRow()).get(seat.getSeat() - 1).setTaken(true);
-            }
+    public static class SimulationResult {
+        // By strategy name, in the order of the configuration
+        private final Map<String, StrategyResult> strategies = new LinkedHashMap<>();
+        // Only utilization and isolated seats are filled in, the optimum turns groups away by choice
+        private final StrategyResult optimal = new StrategyResult();
 
-            result.groupsPlaced++;
-            result.totalSeatsOccupied += groupSize;
+        SimulationResult() {
         }
 
-        // Calculate metrics
-        result.singleIsolatedSeats = countSingleIsolatedSeats(seatMap);
-        result.calculateMetrics();
-
-        return result;
-    }
-
-    /**
-     * Finds the best seats using anti-fragmentation algorithm
-     */
-    private List<Seat> findBestSeatsWithAlgorithm(Map<Integer, List<Seat>> seatMap, int groupSize) {
-        // Try to find a valid placement that doesn't create fragmentation
-        for (int row = 1; row <= TOTAL_ROWS; row++) {
-            List<Integer> contiguousGroups = findContiguousGroupsInRow(seatMap, row);
-
-            for (int groupIdx = 0; groupIdx < contiguousGroups.size(); groupIdx++) {
-                int availableSize = contiguousGroups.get(groupIdx);
-
-                // Check if this block is suitable according to algorithm rules:
-                // 1. Exactly fits the group (no fragmentation)
-                // 2. Leaves 2 or more seats (no single seat created)
-                if (availableSize == groupSize || availableSize >= groupSize + 2) {
-                    // Find the actual starting position of this block
-                    int startSeat = findBlockStartPosition(seatMap, row, groupIdx);
-
-                    // Create seat selection
-                    List<Seat> selectedSeats = new ArrayList<>();
-                    for (int i = 0; i < groupSize; i++) {
-                        selectedSeats.add(new Seat(startSeat + i, row, false));
-                    }
-
-                    // Validate with fragmentation check
-                    if (!doesSelectionCreateFragmentation(seatMap, selectedSeats)) {
-                        return selectedSeats;
-                    }
-                }
+        SimulationResult(List<PlacementStrategy> strategies) {
+            for (PlacementStrategy strategy : strategies) {
+                this.strategies.put(strategy.getName(), new StrategyResult());
             }
         }
 
-        // If no ideal placement found, check if we should allow fragmentation
-        // (cinema is nearly full, no better alternatives)
-        for (int row = 1; row <= TOTAL_ROWS; row++) {
-            List<SeatBlock> blocks = findContiguousBlocksInRow(seatMap, row);
-            for (SeatBlock block : blocks) {
-                if (block.size >= groupSize) {
-                    List<Seat> selectedSeats = new ArrayList<>();
-                    for (int i = 0; i < groupSize; i++) {
-                        selectedSeats.add(new Seat(block.startSeat + i, row, false));
-                    }
-                    return selectedSeats;
-                }
-            }
+        SimulationResult merge(SimulationResult other) {
+            other.strategies.forEach((name, result) ->
+                    strategies.computeIfAbsent(name, n -> new StrategyResult()).merge(result));
+            optimal.merge(other.optimal);
+            return this;
         }
 
-        return null; // No placement found
+        public StrategyResult getOptimal() { return optimal; }
+
+        public StrategyResult get(PlacementStrategy strategy) { return strategies.get(strategy.getName()); }
+        public Map<String, StrategyResult> getStrategies() { return strategies; }
     }
 
-    /**
-     * Finds all contiguous blocks that can accommodate the group size
-     */
-    private List<SeatBlock> findAllSuitableBlocks(Map<Integer, List<Seat>> seatMap, int groupSize) {
-        List<SeatBlock> suitableBlocks = new ArrayList<>();
-
-        for (int row = 1; row <= TOTAL_ROWS; row++) {
-            List<SeatBlock> rowBlocks = findContiguousBlocksInRow(seatMap, row);
-            for (SeatBlock block : rowBlocks) {
-                if (block.size >= groupSize) {
-                    suitableBlocks.add(block);
-                }
-            }
-        }
+    // ==================== ENGINE ====================
 
-        return suitableBlocks;
+    public SimulationResult run(Config config) {
+        return IntStream.range(0, config.trials)
+                .parallel()
+                .mapToObj(trial -> runTrial(config, trial))
+                .collect(SimulationResult::new, SimulationResult::merge, SimulationResult::merge);
     }
 
-    /**
-     * Finds contiguous blocks in a specific row (returns SeatBlock objects with positions)
-     */
-    private List<SeatBlock> findContiguousBlocksInRow(Map<Integer, List<Seat>> seatMap, int row) {
-        List<SeatBlock> blocks = new ArrayList<>();
-        List<Seat> rowSeats = seatMap.get(row);
-
-        int consecutiveCount = 0;
-        int startSeat = -1;
+    private SimulationResult runTrial(Config config, int trial) {
+        // Seeded per trial, not per thread, so the result doesn't depend on how trials are scheduled
+        SplittableRandom random = new SplittableRandom(config.seed ^ (trial * 0x9E3779B97F4A7C15L));
+        SplittableRandom placementRandom = random.split();
+        int[] groups = new int[config.arrivals];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = config.drawGroupSize(random);
+        }
 
-        for (int i = 0; i < rowSeats.size(); i++) {
-            if (!rowSeats.get(i).isTaken()) {
-                if (consecutiveCount == 0) {
-                    startSeat = i + 1; // Seat numbers are 1-indexed
-                }
-                consecutiveCount++;
-            } else {
-                if (consecutiveCount > 0) {
-                    blocks.add(new SeatBlock(row, startSeat, consecutiveCount));
-                    consecutiveCount = 0;
+        SimulationResult result = new SimulationResult(config.strategies);
+        OptimalAllocator.Allocation optimum = config.optimalAllocator.solve(groups);
+        double optimalUtilization = (double) optimum.getSeatsSold() / config.getCapacity();
+        result.optimal.utilization.add(optimalUtilization);
+        result.optimal.isolatedSeats.add(optimum.getIsolatedSeats());
+
+        int naiveIsolated = 0;
+        double naiveUtilization = 0;
+        for (PlacementStrategy strategy : config.strategies) {
+            long[] rows = new long[config.seatsPerRow.length];
+            int occupied = 0;
+            int rejected = 0;
+            for (int groupSize : groups) {
+                if (place(strategy, config.seatsPerRow, rows, groupSize, placementRandom)) {
+                    occupied += groupSize;
+                } else {
+                    rejected++;
                 }
             }
-        }
 
-        // Don't forget the last block
-        if (consecutiveCount > 0) {
-            blocks.add(new SeatBlock(row, startSeat, consecutiveCount));
+            int isolated = countIsolatedSeats(config.seatsPerRow, rows);
+            double utilization = (double) occupied / config.getCapacity();
+            // Naive is always first, so every other strategy is paired against this trial's naive run
+            if (strategy == PlacementStrategies.NAIVE) {
+                naiveIsolated = isolated;
+                naiveUtilization = utilization;
+            }
+            StrategyResult strategyResult = result.get(strategy);
+            strategyResult.utilization.add(utilization);
+            strategyResult.rejectionRate.add((double) rejected / groups.length);
+            strategyResult.isolatedSeats.add(isolated);
+            strategyResult.isolatedSeatsDifference.add(isolated - naiveIsolated);
+            strategyResult.utilizationDifference.add(utilization - naiveUtilization);
+            strategyResult.utilizationGap.add(optimalUtilization - utilization);
+            strategyResult.isolatedSeatsGap.add(isolated - optimum.getIsolatedSeats());
         }
-
-        return blocks;
+        return result;
     }
 
     /**
-     * Finds contiguous group sizes in a row (just sizes, not positions)
+     * Places the group with the strategy, suggesting the middle row like the service does.
+     * Returns false if the group doesn't fit.
      */
-    private List<Integer> findContiguousGroupsInRow(Map<Integer, List<Seat>> seatMap, int row) {
-        List<Integer> groups = new ArrayList<>();
-        List<Seat> rowSeats = seatMap.get(row);
-
-        int consecutiveCount = 0;
-        for (Seat seat : rowSeats) {
-            if (!seat.isTaken()) {
-                consecutiveCount++;
-            } else {
-                if (consecutiveCount > 0) {
-                    groups.add(consecutiveCount);
-                    consecutiveCount = 0;
-                }
-            }
-        }
-
-        if (consecutiveCount > 0) {
-            groups.add(consecutiveCount);
+    static boolean place(PlacementStrategy strategy, int[] seatsPerRow, long[] rows, int groupSize, SplittableRandom random) {
+        Placement placement = strategy.place(new Rows(seatsPerRow, rows), groupSize, (rows.length + 1) / 2, random);
+        if (placement == null) {
+            return false;
         }
-
-        return groups;
+        rows[placement.getRow() - 1] |= placement.getSeatMask();
+        return true;
     }
 
     /**
-     * Finds the starting position of the Nth contiguous block in a row
+     * Free seats with both neighbours taken, the row edges count as taken
      */
-    private int findBlockStartPosition(Map<Integer, List<Seat>> seatMap, int row, int blockIndex) {
-        List<Seat> rowSeats = seatMap.get(row);
-        int currentBlockIdx = 0;
-        int consecutiveCount = 0;
-        int startSeat = -1;
-
-        for (int i = 0; i < rowSeats.size(); i++) {
-            if (!rowSeats.get(i).isTaken()) {
-                if (consecutiveCount == 0) {
-                    startSeat = i + 1;
-                }
-                consecutiveCount++;
-            } else {
-                if (consecutiveCount > 0) {
-                    if (currentBlockIdx == blockIndex) {
-                        return startSeat;
-                    }
-                    currentBlockIdx++;
-                    consecutiveCount = 0;
-                }
-            }
-        }
-
-        // Last block
-        if (consecutiveCount > 0 && currentBlockIdx == blockIndex) {
-            return startSeat;
+    static int countIsolatedSeats(int[] seatsPerRow, long[] rows) {
+        int count = 0;
+        for (int row = 0; row < rows.length; row++) {
+            count += RowMasks.isolatedSeats(~rows[row] & RowMasks.fullMask(seatsPerRow[row]));
         }
-
-        return -1;
+        return count;
     }
 
     /**
-     * Checks if a selection creates fragmentation (adapted from SeatPickerService)
+     * The simulated venue as strategies see it, rows are 1-indexed like in the service
      */
-    private boolean doesSelectionCreateFragmentation(Map<Integer, List<Seat>> seatMap, List<Seat> selectedSeats) {
-        int row = selectedSeats.get(0).getRow();
+    private static class Rows implements SeatRows {
+        private final int[] seatsPerRow;
+        private final long[] rows;
 
-        // Get seat numbers
-        List<Integer> selectedSeatNumbers = new ArrayList<>();
-        for (Seat seat : selectedSeats) {
-            selectedSeatNumbers.add(seat.getSeat());
+        Rows(int[] seatsPerRow, long[] rows) {
+            this.seatsPerRow = seatsPerRow;
+            this.rows = rows;
         }
 
-        // Create simulation for this row
-        boolean[] rowState = new boolean[SEATS_PER_ROW];
-        List<Seat> rowSeats = seatMap.get(row);
-
-        for (Seat seat : rowSeats) {
-            rowState[seat.getSeat() - 1] = seat.isTaken();
+        @Override
+        public int getTotalRows() {
+            return rows.length;
         }
 
-        // Apply the selected seats
-        for (int seatNum : selectedSeatNumbers) {
-            rowState[seatNum - 1] = true;
+        @Override
+        public int getSeatsInRow(int row) {
+            return seatsPerRow[row - 1];
         }
 
-        // Check for isolated seats created by this selection
-        for (int seatNum : selectedSeatNumbers) {
-            int index = seatNum - 1;
-
-            // Check left neighbor
-            if (index > 0 && !rowState[index - 1]) {
-                boolean leftTaken = (index - 1 == 0) || rowState[index - 2];
-                if (leftTaken) {
-                    return true;
-                }
-            }
-
-            // Check right neighbor
-            if (index < rowState.length - 1 && !rowState[index + 1]) {
-                boolean rightTaken = (index + 1 == rowState.length - 1) || rowState[index + 2];
-                if (rightTaken) {
-                    return true;
-                }
-            }
+        @Override
+        public long fullMask(int row) {
+            return RowMasks.fullMask(seatsPerRow[row - 1]);
         }
 
-        return false;
-    }
-
-    /**
-     * Counts the number of single isolated seats in the cinema
-     */
-    private int countSingleIsolatedSeats(Map<Integer, List<Seat>> seatMap) {
-        int count = 0;
-
-        for (int row = 1; row <= TOTAL_ROWS; row++) {
-            List<Seat> rowSeats = seatMap.get(row);
-
-            for (int i = 0; i < rowSeats.size(); i++) {
-                if (!rowSeats.get(i).isTaken()) {
-                    // Check if this empty seat is isolated
-                    boolean leftTaken = (i == 0) || rowSeats.get(i - 1).isTaken();
-                    boolean rightTaken = (i == rowSeats.size() - 1) || rowSeats.get(i + 1).isTaken();
+        @Override
+        public long takenMask(int row) {
+            return rows[row - 1];
+        }
 
-                    if (leftTaken && rightTaken) {
-                        count++;
-                    }
-                }
+        @Override
+        public long getFreeRunLengths() {
+            long runLengths = 0L;
+            for (int row = 1; row <= rows.length; row++) {
+                runLengths |= RowMasks.runLengths(~takenMask(row) & fullMask(row));
             }
+            return runLengths;
         }
-
-        return count;
     }
 
+    // ==================== COMMAND LINE ====================
+
     /**
-     * Initializes an empty cinema
+     * Options, all optional: {@code --rows=10 --seats=10} or {@code --layout=8,10,12,12},
+     * {@code --groups=2:40,3:30,4:20,5:10}, {@code --strategies=naive,best-fit} (all by default),
+     * {@code --arrivals=36}, {@code --trials=20000}, {@code --seed=42}
      */
-    private Map<Integer, List<Seat>> initializeCinema() {
-        Map<Integer, List<Seat>> seatMap = new HashMap<>();
-
-        for (int row = 1; row <= TOTAL_ROWS; row++) {
-            List<Seat> seats = new ArrayList<>();
-            for (int num = 1; num <= SEATS_PER_ROW; num++) {
-                seats.add(new Seat(num, row, false));
-            }
-            seatMap.put(row, seats);
+    public static void main(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] option = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(option[0], option.length > 1 ? option[1] : "");
         }
 
-        return seatMap;
-    }
-
-    /**
-     * Runs both simulations and compares results
-     */
-    public void runComparison(List<Integer> groupSequence) {
-        System.out.println("=".repeat(60));
-        System.out.println("CINEMA SEAT PICKER A/B TEST SIMULATION");
-        System.out.println("=".repeat(60));
-        System.out.println("Group sequence: " + groupSequence);
-        System.out.println("Total groups: " + groupSequence.size());
+        int[] seatsPerRow = options.containsKey("layout")
+                ? Arrays.stream(options.get("layout").split(",")).mapToInt(Integer::parseInt).toArray()
+                : uniform(Integer.parseInt(options.getOrDefault("rows", "10")), Integer.parseInt(options.getOrDefault("seats", "10")));
+        Map<Integer, Double> groups = new TreeMap<>();
+        for (String group : options.getOrDefault("groups", "2:40,3:30,4:20,5:10").split(",")) {
+            String[] sizeAndWeight = group.split(":");
+            groups.put(Integer.parseInt(sizeAndWeight[0]), Double.parseDouble(sizeAndWeight[1]));
+        }
+        List<PlacementStrategy> strategies = options.containsKey("strategies")
+                ? Arrays.stream(options.get("strategies").split(",")).map(PlacementStrategies::forName).toList()
+                : PlacementStrategies.all();
+        Config config = new Config(seatsPerRow, strategies, groups,
+                Integer.parseInt(options.getOrDefault("arrivals", "36")),
+                Integer.parseInt(options.getOrDefault("trials", "20000")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+
+        long started = System.nanoTime();
+        SimulationResult result = new SeatPickerSimulation().run(config);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        System.out.println("=".repeat(72));
+        System.out.println("CINEMA SEAT PICKER PLACEMENT STRATEGY SIMULATION");
+        System.out.println("=".repeat(72));
+        System.out.printf("Layout: %s (%d seats)%n", Arrays.toString(seatsPerRow), config.getCapacity());
+        System.out.printf("Groups: %s, %d arrivals per trial%n", groups, config.arrivals);
+        System.out.printf("Trials: %,d, seed %d, %.2f s on %d cores%n", config.trials, config.seed, seconds,
+                Runtime.getRuntime().availableProcessors());
         System.out.println();
-
-        SimulationResult naiveResult = runNaiveSimulation(groupSequence);
-        SimulationResult algorithmResult = runAlgorithmSimulation(groupSequence);
-
-        System.out.println(naiveResult);
-        System.out.println(algorithmResult);
-
-        System.out.println("=".repeat(60));
-        System.out.println("COMPARISON");
-        System.out.println("=".repeat(60));
-        System.out.println(String.format("Fragmentation rate - Naive: %.2f%%, Algorithm: %.2f%%",
-            naiveResult.getFragmentationRate(), algorithmResult.getFragmentationRate()));
-        System.out.println(String.format("Isolated seats reduced: %d → %d (-%d seats)",
-            naiveResult.getSingleIsolatedSeats(), algorithmResult.getSingleIsolatedSeats(),
-            naiveResult.getSingleIsolatedSeats() - algorithmResult.getSingleIsolatedSeats()));
+        System.out.printf("%-20s %22s %22s %22s%n", "Strategy", "Utilization", "Rejection rate", "Isolated seats");
+        result.getStrategies().forEach((name, strategyResult) ->
+                System.out.printf("%-20s %22s %22s %22s%n", name, strategyResult.getUtilization(),
+                        strategyResult.getRejectionRate(), strategyResult.getIsolatedSeats()));
+        System.out.printf("%-20s %22s %22s %22s%n", "optimal (offline)", result.getOptimal().getUtilization(),
+                "-", result.getOptimal().getIsolatedSeats());
+        System.out.println();
+        System.out.println("Difference from naive, paired on the same arrivals (95% CI):");
+        System.out.printf("%-20s %22s %22s%n", "Strategy", "Utilization", "Isolated seats");
+        result.getStrategies().forEach((name, strategyResult) -> {
+            if (!name.equals(PlacementStrategies.NAIVE.getName())) {
+                System.out.printf("%-20s %22s %22s%n", name, strategyResult.getUtilizationDifference(),
+                        strategyResult.getIsolatedSeatsDifference());
+            }
+        });
         System.out.println();
+        System.out.println("Gap to the offline optimum, paired on the same arrivals (95% CI):");
+        System.out.printf("%-20s %22s %22s%n", "Strategy", "Utilization", "Isolated seats");
+        result.getStrategies().forEach((name, strategyResult) ->
+                System.out.printf("%-20s %22s %22s%n", name, strategyResult.getUtilizationGap(),
+                        strategyResult.getIsolatedSeatsGap()));
     }
 
-    // Example usage
-    public static void main(String[] args) {
-        SeatPickerSimulation simulation = new SeatPickerSimulation();
-
-        // Single comparison with a specific sequence
-        List<Integer> testSequence = Arrays.asList(3, 2, 4, 2, 5, 3, 2, 4, 3, 2, 4, 2, 3, 5, 2, 2, 3, 4, 2, 3,
-                                                     4, 3, 2, 5, 3, 2, 4, 2, 3, 2, 3, 2, 4, 2, 3, 2);
-        simulation.runComparison(testSequence);
+    private static int[] uniform(int rows, int seats) {
+        int[] seatsPerRow = new int[rows];
+        Arrays.fill(seatsPerRow, seats);
+        return seatsPerRow;
     }
 }
@@ -0,0 +1,85 @@
+package org.example.cinemaseatpicker;
+
+import org.example.cinemaseatpicker.SeatPickerSimulation.Config;
+import org.example.cinemaseatpicker.SeatPickerSimulation.SimulationResult;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.PlacementStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatPickerSimulationTest {
+
+    private final SeatPickerSimulation simulation = new SeatPickerSimulation();
+
+    // ==================== HELPER FUNCTIONS ====================
+
+    private Config config(int trials, long seed) {
+        int[] seatsPerRow = {10, 10, 10, 10, 10, 10, 10, 10, 10, 10};
+        return new Config(seatsPerRow, Map.of(2, 40.0, 3, 30.0, 4, 20.0, 5, 10.0), 36, trials, seed);
+    }
+
+    // ==================== TESTS ====================
+
+    @Test
+    @DisplayName("Should give the same numbers for the same seed")
+    void testReproducible() {
+        SimulationResult first = simulation.run(config(2_000, 7));
+        SimulationResult second = simulation.run(config(2_000, 7));
+
+        for (PlacementStrategy strategy : PlacementStrategies.all()) {
+            assertEquals(first.get(strategy).getIsolatedSeats().getMean(), second.get(strategy).getIsolatedSeats().getMean(), 1e-9);
+            assertEquals(first.get(strategy).getUtilization().getMean(), second.get(strategy).getUtilization().getMean(), 1e-9);
+        }
+    }
+
+    @Test
+    @DisplayName("Should leave fewer isolated seats with anti-fragmentation than with naive placement")
+    void testAntiFragmentationBeatsNaive() {
+        SimulationResult result = simulation.run(config(5_000, 42));
+
+        assertEquals(5_000, result.get(PlacementStrategies.NAIVE).getIsolatedSeats().getCount());
+        SeatPickerSimulation.Stats difference = result.get(PlacementStrategies.ANTI_FRAGMENTATION).getIsolatedSeatsDifference();
+        // The whole confidence interval of the paired difference is below zero
+        assertTrue(difference.getMean() + difference.getConfidence95() < 0);
+    }
+
+    @Test
+    @DisplayName("Should always compare against naive placement, even when it isn't asked for")
+    void testNaiveIsTheBaseline() {
+        Config config = new Config(new int[]{10, 10}, List.of(PlacementStrategies.BEST_FIT),
+                Map.of(2, 1.0), 8, 100, 3);
+
+        SimulationResult result = simulation.run(config);
+
+        assertEquals(List.of("naive", "best-fit"), List.copyOf(result.getStrategies().keySet()));
+        assertEquals(0.0, result.get(PlacementStrategies.NAIVE).getIsolatedSeatsDifference().getMean(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should never place a group on taken seats")
+    void testPlacementOnlyUsesFreeSeats() {
+        int[] seatsPerRow = {7, 12, 64};
+        SplittableRandom random = new SplittableRandom(1);
+        for (PlacementStrategy strategy : PlacementStrategies.all()) {
+            long[] rows = new long[seatsPerRow.length];
+            int placedSeats = 0;
+            for (int i = 0; i < 200; i++) {
+                int groupSize = 1 + random.nextInt(6);
+                if (SeatPickerSimulation.place(strategy, seatsPerRow, rows, groupSize, random)) {
+                    placedSeats += groupSize;
+                }
+            }
+            int takenSeats = 0;
+            for (long row : rows) {
+                takenSeats += Long.bitCount(row);
+            }
+            assertEquals(placedSeats, takenSeats);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.example.cinemaseatpicker.benchmark;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.service.BookingJournal;
+import org.example.cinemaseatpicker.service.OccupancySnapshot;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
+import org.example.cinemaseatpicker.service.ShowingRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Append throughput of the booking journal and how long startup takes from the journal or a snapshot.
+ * Every append is followed by its own commit, like /order does, so with more threads ({@code -t}) the
+ * numbers show how far group commit stretches one fsync.
+ */
+@Fork(1)
+public class BookingJournalBenchmark {
+
+    private static final int RECOVERY_RECORDS = 1_000_000;
+    private static final int SNAPSHOT_SHOWINGS = 10_000;
+
+    @State(Scope.Benchmark)
+    public static class Appender {
+
+        @Param({"false", "true"})
+        public boolean fsync;
+
+        private Path dir;
+        private BookingJournal journal;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("journal-append");
+            journal = BookingJournal.open(dir, fsync, 0L, new IgnoringHandler());
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            journal.close();
+            delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        private Path journalDir;
+        private Path snapshotDir;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            journalDir = Files.createTempDirectory("journal-recovery");
+            try (BookingJournal journal = BookingJournal.open(journalDir, false, 0L, new IgnoringHandler())) {
+                for (int i = 0; i < RECOVERY_RECORDS; i++) {
+                    journal.appendTake("default", 1 + i % 5, RowMasks.bit(1 + i % 10));
+                }
+            }
+
+            snapshotDir = Files.createTempDirectory("snapshot-recovery");
+            ShowingRegistry registry = new ShowingRegistry();
+            registry.registerLayout(AuditoriumLayout.uniform("hall", 20, 30));
+            for (int i = 0; i < SNAPSHOT_SHOWINGS; i++) {
+                SeatOccupancy occupancy = registry.createShowing("showing-" + i, "hall").getOccupancy();
+                for (int row = 1; row <= 20; row += 2) {
+                    occupancy.take(row, RowMasks.range(1, 1 + i % 30));
+                }
+            }
+            OccupancySnapshot.write(snapshotDir, 0L, registry);
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            BookingJournalBenchmark.delete(journalDir);
+            BookingJournalBenchmark.delete(snapshotDir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Threads(16)
+    public void appendAndCommit(Appender appender) {
+        BookingJournal journal = appender.journal;
+        journal.commit(journal.appendTake("default", 1, RowMasks.bit(1)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public void replayJournal(Recovery recovery) throws IOException {
+        BookingJournal.open(recovery.journalDir, false, 0L, new IgnoringHandler()).close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public ShowingRegistry loadSnapshot(Recovery recovery) throws IOException {
+        ShowingRegistry registry = new ShowingRegistry();
+        OccupancySnapshot.load(recovery.snapshotDir, registry);
+        return registry;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static class IgnoringHandler implements BookingJournal.Handler {
+
+        @Override
+        public void layout(AuditoriumLayout layout) {
+        }
+
+        @Override
+        public void showing(String showingId, String layoutId, String strategy) {
+        }
+
+        @Override
+        public void take(String showingId, int row, long seatMask, String bookingId) {
+        }
+
+        @Override
+        public void release(String showingId, String bookingId, int firstRow, long[] seatMasks) {
+        }
+
+        @Override
+        public void reset(String showingId) {
+        }
+    }
+}
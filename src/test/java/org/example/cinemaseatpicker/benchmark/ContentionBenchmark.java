@@ -0,0 +1,81 @@
+package org.example.cinemaseatpicker.benchmark;
+
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Booking throughput with many buyers on one showing. With {@code rows=SAME} every thread books in the
+ * same row and the row word's CAS is contended, with {@code rows=OWN} each thread has a row to itself.
+ * Run with {@code -t} to change the thread count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ContentionBenchmark {
+
+    @Param({"SAME", "OWN"})
+    public String rows;
+
+    private SeatPickerService service;
+    private SeatOccupancy occupancy;
+
+    @Setup
+    public void setUp() {
+        service = Venues.create("64x64", "EMPTY");
+        occupancy = Venues.occupancy(service);
+    }
+
+    @State(Scope.Thread)
+    public static class Buyer {
+
+        private List<Seat> selection;
+        private int row;
+        private long mask;
+
+        @Setup
+        public void setUp(ContentionBenchmark benchmark, ThreadParams threads) {
+            int thread = threads.getThreadIndex();
+            row = "SAME".equals(benchmark.rows) ? 1 : 1 + thread % 64;
+            // Pairs four seats apart leave gaps of two, so buyers sharing a row never fragment it for each other
+            int seat = "SAME".equals(benchmark.rows) ? 1 + (thread * 4) % 64 : 1;
+            selection = List.of(new Seat(seat, row, false), new Seat(seat + 1, row, false));
+            mask = Venues.mask(selection);
+        }
+    }
+
+    @Benchmark
+    public BookingStatus bookAndRelease(Buyer buyer) {
+        BookingStatus status = service.bookSeats(Venues.SHOWING, buyer.selection);
+        if (status == BookingStatus.BOOKED) {
+            occupancy.release(buyer.row, buyer.mask);
+        }
+        return status;
+    }
+
+    @Benchmark
+    public boolean checkSeats(Buyer buyer) {
+        return service.checkSeats(Venues.SHOWING, buyer.selection);
+    }
+}
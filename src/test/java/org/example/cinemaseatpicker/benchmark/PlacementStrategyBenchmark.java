@@ -0,0 +1,61 @@
+package org.example.cinemaseatpicker.benchmark;
+
+import org.example.cinemaseatpicker.service.Placement;
+import org.example.cinemaseatpicker.service.PlacementStrategies;
+import org.example.cinemaseatpicker.service.PlacementStrategy;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of one seat suggestion per placement strategy. How well the strategies fill a hall is measured
+ * by the simulation (SeatPickerSimulation), this only measures how fast they decide.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementStrategyBenchmark {
+
+    @Param({"naive", "first-fit", "best-fit", "anti-fragmentation"})
+    public String strategy;
+
+    @Param({"20x30"})
+    public String venue;
+
+    @Param({"EMPTY", "HALF", "FRAGMENTED"})
+    public String state;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private PlacementStrategy placement;
+    private SeatOccupancy occupancy;
+    private int groupSize;
+
+    @Setup
+    public void setUp() {
+        placement = PlacementStrategies.forName(strategy);
+        occupancy = Venues.occupancy(Venues.create(venue, state));
+    }
+
+    @Benchmark
+    public Placement place() {
+        // Groups of 1 to 4 in turn, FRAGMENTED only has room for pairs and singles
+        groupSize = groupSize == 4 ? 1 : groupSize + 1;
+        return placement.place(occupancy, groupSize, (occupancy.getTotalRows() + 1) / 2, random);
+    }
+}
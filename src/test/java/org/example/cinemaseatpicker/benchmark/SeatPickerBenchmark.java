@@ -0,0 +1,103 @@
+package org.example.cinemaseatpicker.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.cinemaseatpicker.model.BookingStatus;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of the booking hot paths for several venue sizes and occupancy states.
+ * Booking benchmarks free their seats again in the same invocation, so the state never drifts.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SeatPickerBenchmark {
+
+    @Param({"5x10", "20x30", "50x64"})
+    public String venue;
+
+    @Param({"EMPTY", "HALF", "FRAGMENTED"})
+    public String state;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SeatPickerService service;
+    private SeatOccupancy occupancy;
+    private List<List<Seat>> selections;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        service = Venues.create(venue, state);
+        occupancy = Venues.occupancy(service);
+        selections = Venues.freeSelections(occupancy);
+    }
+
+    private List<Seat> nextSelection() {
+        List<Seat> selection = selections.get(next);
+        next = next + 1 == selections.size() ? 0 : next + 1;
+        return selection;
+    }
+
+    @Benchmark
+    public boolean checkSeats() {
+        return service.checkSeats(Venues.SHOWING, nextSelection());
+    }
+
+    @Benchmark
+    public boolean hasValidAlternatives() {
+        return service.hasValidAlternatives(Venues.SHOWING, 2);
+    }
+
+    @Benchmark
+    public void orderSeats() {
+        List<Seat> selection = nextSelection();
+        service.orderSeats(Venues.SHOWING, selection);
+        occupancy.release(selection.get(0).getRow(), Venues.mask(selection));
+    }
+
+    @Benchmark
+    public BookingStatus bookSeats() {
+        List<Seat> selection = nextSelection();
+        BookingStatus status = service.bookSeats(Venues.SHOWING, selection);
+        if (status == BookingStatus.BOOKED) {
+            occupancy.release(selection.get(0).getRow(), Venues.mask(selection));
+        }
+        return status;
+    }
+
+    @Benchmark
+    public List<Seat> getAllSeats() {
+        return service.getAllSeats(Venues.SHOWING);
+    }
+
+    @Benchmark
+    public byte[] seatMapJson() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(service.getAllSeats(Venues.SHOWING));
+    }
+
+    @Benchmark
+    public byte[] seatMapBitmap() {
+        return service.getEncodedSeatMap(Venues.SHOWING);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.cinemaseatpicker.benchmark;
+
+import org.example.cinemaseatpicker.model.AuditoriumLayout;
+import org.example.cinemaseatpicker.model.Seat;
+import org.example.cinemaseatpicker.service.RowMasks;
+import org.example.cinemaseatpicker.service.SeatOccupancy;
+import org.example.cinemaseatpicker.service.SeatPickerService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Venues and occupancy states shared by the benchmarks. Everything is seeded, so every run
+ * starts from the same seats.
+ */
+final class Venues {
+
+    static final String SHOWING = "bench";
+
+    private Venues() {
+    }
+
+    /**
+     * Service with one showing of the given size ("rows x seats") in the given state
+     */
+    static SeatPickerService create(String venue, String state) {
+        String[] size = venue.split("x");
+        SeatPickerService service = new SeatPickerService();
+        service.initSeats();
+        service.registerLayout(AuditoriumLayout.uniform(SHOWING, Integer.parseInt(size[0]), Integer.parseInt(size[1])));
+        service.createShowing(SHOWING, SHOWING);
+        fill(occupancy(service), state);
+        return service;
+    }
+
+    static SeatOccupancy occupancy(SeatPickerService service) {
+        return service.getRegistry().getShowing(SHOWING).getOccupancy();
+    }
+
+    /**
+     * EMPTY leaves every seat free, HALF takes about half at random, FRAGMENTED takes every third seat
+     * so rows are full of pairs with no room for bigger groups
+     */
+    static void fill(SeatOccupancy occupancy, String state) {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+            long taken = 0L;
+            for (int seat = 1; seat <= occupancy.getSeatsInRow(row); seat++) {
+                boolean take = switch (state) {
+                    case "EMPTY" -> false;
+                    case "HALF" -> random.nextBoolean();
+                    case "FRAGMENTED" -> seat % 3 == 0;
+                    default -> throw new IllegalArgumentException("Unknown state " + state);
+                };
+                if (take) {
+                    taken |= RowMasks.bit(seat);
+                }
+            }
+            if (taken != 0) {
+                occupancy.take(row, taken);
+            }
+        }
+    }
+
+    /**
+     * Every free pair of adjacent seats, or every free single seat if there are no pairs
+     */
+    static List<List<Seat>> freeSelections(SeatOccupancy occupancy) {
+        List<List<Seat>> pairs = new ArrayList<>();
+        List<List<Seat>> singles = new ArrayList<>();
+        for (int row = 1; row <= occupancy.getTotalRows(); row++) {
+            for (int seat = 1; seat <= occupancy.getSeatsInRow(row); seat++) {
+                if (occupancy.isTaken(row, seat)) {
+                    continue;
+                }
+                singles.add(List.of(new Seat(seat, row, false)));
+                if (seat < occupancy.getSeatsInRow(row) && !occupancy.isTaken(row, seat + 1)) {
+                    pairs.add(List.of(new Seat(seat, row, false), new Seat(seat + 1, row, false)));
+                }
+            }
+        }
+        return pairs.isEmpty() ? singles : pairs;
+    }
+
+    static long mask(List<Seat> selection) {
+        long mask = 0L;
+        for (Seat seat : selection) {
+            mask |= RowMasks.bit(seat.getSeat());
+        }
+        return mask;
+    }
+}